@@ -0,0 +1,92 @@
+package com.einherji.rs2world.engine;
+
+import com.einherji.rs2world.net.clients.ClientService;
+import com.einherji.rs2world.net.login.LoginDecoder;
+import com.einherji.rs2world.net.login.LoginResponse;
+import com.einherji.rs2world.net.login.LoginResponseCodes;
+import com.einherji.rs2world.net.login.LoginService;
+import com.einherji.rs2world.net.packets.PacketContext;
+import com.einherji.rs2world.persistence.InMemoryPlayerRepository;
+import com.einherji.rs2world.persistence.PlayerSaveService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules a batch of events spread over {@value #SPREAD} ticks and runs the engine until all of them executed,
+ * once scheduled from the tick itself and once submitted from another thread. Scores are per batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventServiceBenchmark {
+
+    private static final int SPREAD = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    private int events;
+
+    private EventService eventService;
+    private Engine engine;
+    private long executed;
+
+    @Setup
+    public void setup() {
+        // the engine is created below, so the service reads it through the field
+        eventService = new EventService(() -> engine.isTickThread(), () -> engine.getCurrentTick());
+        LoginService loginService = new LoginService(new LoginDecoder(""),
+                credentials -> LoginResponse.of(LoginResponseCodes.LOGIN_SERVER_OFFLINE), 25, 512, 0.2);
+        PlayerSaveService playerSaveService = new PlayerSaveService(new InMemoryPlayerRepository(), 100);
+        ClientService clientService = new ClientService(new PacketContext(loginService), playerSaveService,
+                2048, 131072, 32, 1);
+        engine = new Engine(eventService, clientService, loginService, new TickProfiler(5));
+    }
+
+    @Benchmark
+    public long scheduleOnTick() {
+        executed = 0;
+        eventService.schedule(1, () -> {
+            for (int i = 0; i < events; i++) {
+                eventService.schedule(1 + i % SPREAD, this::execute);
+            }
+            return 0;
+        });
+        runTicks(SPREAD + 2);
+        return executed;
+    }
+
+    @Benchmark
+    public long submitFromOtherThread() {
+        executed = 0;
+        for (int i = 0; i < events; i++) {
+            eventService.schedule(1 + i % SPREAD, this::execute);
+        }
+        runTicks(SPREAD + 1);
+        return executed;
+    }
+
+    private int execute() {
+        executed++;
+        return 0;
+    }
+
+    private void runTicks(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            engine.run();
+        }
+    }
+
+}
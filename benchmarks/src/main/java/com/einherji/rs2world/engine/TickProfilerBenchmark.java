@@ -0,0 +1,54 @@
+package com.einherji.rs2world.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What profiling costs the engine per tick: every phase and the tick itself are recorded the way {@link Engine#run()}
+ * records them. Each invocation covers a minute of ticks, including the report published at its end, so scores are
+ * per tick and compare directly against the {@value Engine#TICK_DURATION} ms tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(TickProfiler.TICKS_PER_REPORT)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickProfilerBenchmark {
+
+    private TickProfiler tickProfiler;
+    private long tick;
+
+    @Setup
+    public void setup() {
+        tickProfiler = new TickProfiler(5);
+    }
+
+    @Benchmark
+    public long profileTicks() {
+        long phaseStart = 0;
+        for (int i = 0; i < TickProfiler.TICKS_PER_REPORT; i++) {
+            long start = System.nanoTime();
+            phaseStart = tickProfiler.endPhase(TickPhase.INTAKE, start);
+            phaseStart = tickProfiler.endPhase(TickPhase.EVENTS, phaseStart);
+            phaseStart = tickProfiler.endPhase(TickPhase.PACKETS, phaseStart);
+            phaseStart = tickProfiler.endPhase(TickPhase.FLUSH, phaseStart);
+            phaseStart = tickProfiler.endPhase(TickPhase.CLEANUP, phaseStart);
+            tickProfiler.endTick(++tick, phaseStart - start);
+        }
+        return phaseStart;
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.einherji.rs2world.net.clients;
+
+import com.einherji.rs2world.net.login.LoginDecoder;
+import com.einherji.rs2world.net.login.LoginResponse;
+import com.einherji.rs2world.net.login.LoginResponseCodes;
+import com.einherji.rs2world.net.login.LoginService;
+import com.einherji.rs2world.net.packets.PacketContext;
+import com.einherji.rs2world.persistence.InMemoryPlayerRepository;
+import com.einherji.rs2world.persistence.PlayerSaveService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks clients up by index in a registry holding the given amount of clients, in order and at random. Scores are
+ * per lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(ClientServiceBenchmark.LOOKUPS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientServiceBenchmark {
+
+    static final int LOOKUPS = 1024;
+
+    @Param({"100", "2000"})
+    private int clients;
+
+    private ClientService clientService;
+    private final int[] randomIndices = new int[LOOKUPS];
+
+    @Setup
+    public void setup() {
+        LoginService loginService = new LoginService(new LoginDecoder(""),
+                credentials -> LoginResponse.of(LoginResponseCodes.LOGIN_SERVER_OFFLINE), 25, 512, 0.2);
+        PlayerSaveService playerSaveService = new PlayerSaveService(new InMemoryPlayerRepository(), 100);
+        clientService = new ClientService(new PacketContext(loginService), playerSaveService, 2048, 131072, 32, 1);
+        for (int i = 0; i < clients; i++) {
+            clientService.create(null, null);
+        }
+        clientService.registerPendingClients();
+        SplittableRandom random = new SplittableRandom(43594);
+        for (int i = 0; i < LOOKUPS; i++) {
+            randomIndices[i] = random.nextInt(clients);
+        }
+    }
+
+    @Benchmark
+    public int sequentialLookup() {
+        int found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (clientService.get(i % clients) != null) found++;
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int randomLookup() {
+        int found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (clientService.get(randomIndices[i]) != null) found++;
+        }
+        return found;
+    }
+
+}
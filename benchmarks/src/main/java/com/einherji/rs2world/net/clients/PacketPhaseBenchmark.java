@@ -0,0 +1,99 @@
+package com.einherji.rs2world.net.clients;
+
+import com.einherji.rs2world.net.login.LoginDecoder;
+import com.einherji.rs2world.net.login.LoginResponse;
+import com.einherji.rs2world.net.login.LoginResponseCodes;
+import com.einherji.rs2world.net.login.LoginService;
+import com.einherji.rs2world.net.packets.Packet;
+import com.einherji.rs2world.net.packets.PacketContext;
+import com.einherji.rs2world.persistence.InMemoryPlayerRepository;
+import com.einherji.rs2world.persistence.PlayerSaveService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The packet phase of a full world, serially and across a pool of packet threads. Every client queues a handful of
+ * player-local packets and one packet that touches shared state. Scores are per tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketPhaseBenchmark {
+
+    private static final int CLIENTS = 2000;
+    private static final int LOCAL_PACKETS = 8;
+
+    @Param({"1", "4", "16"})
+    private int packetThreads;
+
+    private ClientService clientService;
+    private long sharedWork;
+    private final Packet localPacket = new LocalPacket();
+    private final Packet sharedPacket = (client, ctx) -> sharedWork++;
+
+    @Setup
+    public void setup() {
+        LoginService loginService = new LoginService(new LoginDecoder(""),
+                credentials -> LoginResponse.of(LoginResponseCodes.LOGIN_SERVER_OFFLINE), 25, 512, 0.2);
+        PlayerSaveService playerSaveService = new PlayerSaveService(new InMemoryPlayerRepository(), 100);
+        clientService = new ClientService(new PacketContext(loginService), playerSaveService, CLIENTS, 131072,
+                32, packetThreads);
+        for (int i = 0; i < CLIENTS; i++) {
+            clientService.create(null, null);
+        }
+        clientService.registerPendingClients();
+    }
+
+    @Setup(Level.Invocation)
+    public void queuePackets() {
+        for (int i = 0; i < CLIENTS; i++) {
+            Client client = clientService.get(i);
+            for (int j = 0; j < LOCAL_PACKETS; j++) {
+                client.queuePacket(localPacket);
+            }
+            client.queuePacket(sharedPacket);
+        }
+    }
+
+    @Benchmark
+    public long executeQueuedPackets() {
+        clientService.executeQueuedPackets();
+        return sharedWork;
+    }
+
+    /**
+     * Stands in for a handler like an interface click: a few microseconds of work on the client's own state.
+     */
+    private static final class LocalPacket implements Packet {
+
+        @Override
+        public void execute(Client client, PacketContext ctx) {
+            long hash = client.getIndex();
+            for (int i = 0; i < 1000; i++) {
+                hash = hash * 31 + i;
+            }
+            client.setFocused(hash != 0);
+        }
+
+        @Override
+        public boolean isPlayerLocal() {
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.einherji.rs2world.net.login;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decrypting a login block with the CRT key against a plain modular exponentiation with the private exponent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RsaCrtKeyBenchmark {
+
+    @Param({"1024", "2048"})
+    private int keySize;
+
+    private RsaCrtKey crtKey;
+    private RSAPrivateCrtKey privateKey;
+    private byte[] block;
+
+    @Setup
+    public void setup() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(keySize);
+        KeyPair keyPair = generator.generateKeyPair();
+        privateKey = (RSAPrivateCrtKey) keyPair.getPrivate();
+        crtKey = new RsaCrtKey(privateKey);
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        BigInteger plain = new BigInteger(1, "\nmopar\nhunter2\n".repeat(4).getBytes());
+        block = plain.modPow(publicKey.getPublicExponent(), publicKey.getModulus()).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] crt() {
+        return crtKey.decrypt(block);
+    }
+
+    @Benchmark
+    public byte[] modPow() {
+        return new BigInteger(block).modPow(privateKey.getPrivateExponent(), privateKey.getModulus()).toByteArray();
+    }
+
+}
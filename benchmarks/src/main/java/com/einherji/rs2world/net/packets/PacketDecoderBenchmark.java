@@ -0,0 +1,70 @@
+package com.einherji.rs2world.net.packets;
+
+import com.einherji.rs2world.net.clients.Client;
+import com.einherji.rs2world.net.clients.ClientStatus;
+import com.einherji.rs2world.net.util.Rs2Buffer;
+import com.einherji.rs2world.net.util.Rs2ReadBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frames a read of {@value #FRAMES} game packets that mixes a fixed size packet with a builder, a fixed size packet
+ * without one and a variable size packet without one. Opcodes are not encrypted, so this measures framing and
+ * dispatch alone. Scores are per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(PacketDecoderBenchmark.FRAMES)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketDecoderBenchmark {
+
+    static final int FRAMES = 300;
+
+    private static final int WALK_OPCODE = 164;
+    private static final int IDLE_OPCODE = 0;
+
+    private final PacketDecoder decoder = new PacketDecoder();
+    private Client client;
+    private ByteBuffer read;
+
+    @Setup
+    public void setup() {
+        client = new Client(null, null, Rs2Buffer.createWriteBuffer(ByteBuffer.allocate(64)), Integer.MAX_VALUE);
+        client.setStatus(ClientStatus.LOGGED_IN);
+        read = ByteBuffer.allocateDirect(FRAMES * 16);
+        for (int i = 0; i < FRAMES / 3; i++) {
+            read.put((byte) 3).put((byte) (i & 1));
+            read.put((byte) IDLE_OPCODE);
+            read.put((byte) WALK_OPCODE).put((byte) 5).put(new byte[5]);
+        }
+        read.flip();
+    }
+
+    @Benchmark
+    public int decode() {
+        Rs2ReadBuffer buffer = Rs2Buffer.createReadBuffer(read.rewind());
+        int decoded = 0;
+        Packet packet;
+        while ((packet = decoder.decode(client, buffer)) != null) {
+            if (packet instanceof PooledPacket pooled) pooled.recycle();
+            decoded++;
+        }
+        return decoded;
+    }
+
+}
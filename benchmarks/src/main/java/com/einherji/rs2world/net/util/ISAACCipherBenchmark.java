@@ -0,0 +1,95 @@
+package com.einherji.rs2world.net.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keystream generation one value at a time against the bulk paths, and per-packet opcode encryption against
+ * encrypting a finished frame in one pass. Each invocation covers {@value #VALUES} values, so scores are per value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(ISAACCipherBenchmark.VALUES)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ISAACCipherBenchmark {
+
+    static final int VALUES = 1024;
+
+    private ISAACCipher cipher;
+    private final int[] values = new int[VALUES];
+    private final byte[] bytes = new byte[VALUES];
+    private Rs2WriteBuffer frame;
+    private final int[] opcodePositions = new int[VALUES];
+
+    @Setup
+    public void setup() {
+        cipher = new ISAACCipher(new int[]{0x12345678, 0x9abcdef0, 0x0fedcba9, 0x87654321});
+        frame = Rs2Buffer.createWriteBuffer(ByteBuffer.allocateDirect(VALUES * 4));
+        for (int i = 0; i < VALUES; i++) {
+            opcodePositions[i] = i * 4;
+        }
+    }
+
+    @Benchmark
+    public int[] nextValue() {
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = cipher.getNextValue();
+        }
+        return values;
+    }
+
+    @Benchmark
+    public int[] nextValuesBulk() {
+        cipher.getNextValues(values, 0, VALUES);
+        return values;
+    }
+
+    @Benchmark
+    public byte[] nextBytesBulk() {
+        cipher.getNextValues(bytes, 0, VALUES);
+        return bytes;
+    }
+
+    /**
+     * A frame of fixed size packets with a three byte payload, encrypted as each header is written.
+     */
+    @Benchmark
+    public ByteBuffer encryptPerHeader() {
+        ByteBuffer buffer = frame.getBuffer().clear();
+        for (int i = 0; i < VALUES; i++) {
+            frame.writeHeader(cipher, i & 0xff);
+            buffer.position(buffer.position() + 3);
+        }
+        return buffer;
+    }
+
+    /**
+     * The same frame, with the opcodes encrypted in one pass once it is finished.
+     */
+    @Benchmark
+    public ByteBuffer encryptFrame() {
+        ByteBuffer buffer = frame.getBuffer().clear();
+        for (int i = 0; i < VALUES; i++) {
+            buffer.put((byte) i);
+            buffer.position(buffer.position() + 3);
+        }
+        cipher.encryptOpcodes(buffer, opcodePositions, VALUES);
+        return buffer;
+    }
+
+}
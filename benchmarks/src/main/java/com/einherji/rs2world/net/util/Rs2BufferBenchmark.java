@@ -0,0 +1,154 @@
+package com.einherji.rs2world.net.util;
+
+import com.einherji.rs2world.net.util.Rs2Buffer.AccessType;
+import com.einherji.rs2world.net.util.Rs2Buffer.ByteOrder;
+import com.einherji.rs2world.net.util.Rs2Buffer.ValueType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes of every value type and byte order the buffers support, plus bit access. Each invocation covers
+ * {@value #VALUES} values, so scores are per value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(Rs2BufferBenchmark.VALUES)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Rs2BufferBenchmark {
+
+    static final int VALUES = 256;
+
+    @Param({"STANDARD", "A", "C", "S"})
+    private ValueType type;
+
+    private Rs2WriteBuffer writeBuffer;
+    private ByteBuffer readBytes;
+
+    /**
+     * Shorts and longs only come in big and little endian; ints support every byte order.
+     */
+    @State(Scope.Thread)
+    public static class Endianness {
+
+        @Param({"BIG", "LITTLE"})
+        ByteOrder order;
+
+    }
+
+    @State(Scope.Thread)
+    public static class IntByteOrder {
+
+        @Param({"BIG", "LITTLE", "MIDDLE", "INVERSE_MIDDLE"})
+        ByteOrder order;
+
+    }
+
+    @Setup
+    public void setup() {
+        writeBuffer = Rs2Buffer.createWriteBuffer(ByteBuffer.allocateDirect(VALUES * Long.BYTES));
+        readBytes = ByteBuffer.allocateDirect(VALUES * Long.BYTES);
+        for (int i = 0; i < readBytes.capacity(); i++) {
+            readBytes.put(i, (byte) (i * 31));
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer writeByte() {
+        ByteBuffer buffer = writeBuffer.getBuffer().clear();
+        for (int i = 0; i < VALUES; i++) {
+            writeBuffer.writeByte(i, type);
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer writeShort(Endianness endianness) {
+        ByteBuffer buffer = writeBuffer.getBuffer().clear();
+        for (int i = 0; i < VALUES; i++) {
+            writeBuffer.writeShort(i, type, endianness.order);
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer writeInt(IntByteOrder intByteOrder) {
+        ByteBuffer buffer = writeBuffer.getBuffer().clear();
+        for (int i = 0; i < VALUES; i++) {
+            writeBuffer.writeInt(i, type, intByteOrder.order);
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer writeLong(Endianness endianness) {
+        ByteBuffer buffer = writeBuffer.getBuffer().clear();
+        for (int i = 0; i < VALUES; i++) {
+            writeBuffer.writeLong(i, type, endianness.order);
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public void readByte(Blackhole blackhole) {
+        Rs2ReadBuffer buffer = Rs2Buffer.createReadBuffer(readBytes.clear());
+        for (int i = 0; i < VALUES; i++) {
+            blackhole.consume(buffer.readByte(true, type));
+        }
+    }
+
+    @Benchmark
+    public void readShort(Endianness endianness, Blackhole blackhole) {
+        Rs2ReadBuffer buffer = Rs2Buffer.createReadBuffer(readBytes.clear());
+        for (int i = 0; i < VALUES; i++) {
+            blackhole.consume(buffer.readShort(true, type, endianness.order));
+        }
+    }
+
+    @Benchmark
+    public void readInt(IntByteOrder intByteOrder, Blackhole blackhole) {
+        Rs2ReadBuffer buffer = Rs2Buffer.createReadBuffer(readBytes.clear());
+        for (int i = 0; i < VALUES; i++) {
+            blackhole.consume(buffer.readInt(true, type, intByteOrder.order));
+        }
+    }
+
+    @Benchmark
+    public void readLong(Endianness endianness, Blackhole blackhole) {
+        Rs2ReadBuffer buffer = Rs2Buffer.createReadBuffer(readBytes.clear());
+        for (int i = 0; i < VALUES; i++) {
+            blackhole.consume(buffer.readLong(type, endianness.order));
+        }
+    }
+
+    /**
+     * Writes 11-bit values, the width of a player index in the update protocol. Independent of the value type.
+     */
+    @Benchmark
+    public ByteBuffer writeBits() {
+        ByteBuffer buffer = writeBuffer.getBuffer().clear();
+        writeBuffer.setAccessType(AccessType.BIT_ACCESS);
+        for (int i = 0; i < VALUES; i++) {
+            writeBuffer.writeBits(11, i);
+        }
+        writeBuffer.setAccessType(AccessType.BYTE_ACCESS);
+        return buffer;
+    }
+
+}
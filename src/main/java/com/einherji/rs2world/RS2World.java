@@ -1,35 +1,49 @@
 package com.einherji.rs2world;
 
 import com.einherji.rs2world.engine.Engine;
+import com.einherji.rs2world.engine.TickLoop;
 import com.einherji.rs2world.net.Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-
 @Component
-public class RS2World implements CommandLineRunner {
+public class RS2World implements CommandLineRunner, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RS2World.class);
 
     private static Engine engine;
     private static Server server;
-    private static ScheduledExecutorService executorService;
-    private static ScheduledFuture serverFuture;
-    private static ScheduledFuture engineFuture;
+    private static TickLoop tickLoop;
+    private static Thread serverThread;
 
     public RS2World(Server serverRef,
-                    Engine engineRef) {
+                    Engine engineRef,
+                    TickLoop tickLoopRef) {
         server = serverRef;
         engine = engineRef;
+        tickLoop = tickLoopRef;
     }
 
     @Override
     public void run(String... args) throws Exception {
-        executorService = Executors.newScheduledThreadPool(3);
-        serverFuture = executorService.scheduleAtFixedRate(server, 0, 100, TimeUnit.MILLISECONDS);
-        engineFuture = executorService.scheduleAtFixedRate(engine, 0, 600, TimeUnit.MILLISECONDS);
+        serverThread = new Thread(server, "rs2-acceptor");
+        serverThread.start();
+        tickLoop.start();
+    }
+
+    /**
+     * Stops the tick loop, lets a running tick finish and then saves every player still in the world.
+     */
+    @Override
+    public void destroy() throws Exception {
+        if (tickLoop == null) return;
+        if (!tickLoop.stop(Engine.TICK_DURATION * 10)) {
+            LOGGER.error("Engine did not stop in time, saving players anyway");
+        }
+        engine.shutdown();
     }
 
     public static long currentGameTick() {
@@ -2,8 +2,12 @@ package com.einherji.rs2world;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 
-@SpringBootApplication
+/*
+ * The data source is only created when players are stored in a database, see PersistenceConfiguration.
+ */
+@SpringBootApplication(exclude = DataSourceAutoConfiguration.class)
 public class Rs2WorldApplication {
 
     public static void main(String[] args) {
@@ -1,30 +1,90 @@
 package com.einherji.rs2world.engine;
 
 import com.einherji.rs2world.net.clients.ClientService;
+import com.einherji.rs2world.net.login.LoginService;
 import org.springframework.stereotype.Component;
 
 @Component
 public class Engine implements Runnable {
 
+    /**
+     * The duration of a game tick in milliseconds.
+     */
+    public static final long TICK_DURATION = 600;
+
+    private static final long TICK_DURATION_NANOS = TICK_DURATION * 1_000_000;
+
     private final EventService eventService;
     private final ClientService clientService;
+    private final LoginService loginService;
+    private final TickProfiler tickProfiler;
     private long currentTick;
+    private long lastTickNanos;
+    private volatile Thread tickThread;
 
-    public Engine(EventService eventService, ClientService clientService) {
+    public Engine(EventService eventService,
+                  ClientService clientService,
+                  LoginService loginService,
+                  TickProfiler tickProfiler) {
         this.eventService = eventService;
         this.clientService = clientService;
+        this.loginService = loginService;
+        this.tickProfiler = tickProfiler;
         this.currentTick = 0L;
     }
 
     @Override
     public void run() {
-        currentTick++;
-        eventService.executeScheduledEvents();
-        clientService.executeQueuedPackets();
+        tickThread = Thread.currentThread();
+        long start = System.nanoTime();
+        try {
+            long phaseStart = start;
+            eventService.drainSubmissions();
+            clientService.registerPendingClients();
+            loginService.admitCompletedLogins(getTickHeadroom());
+            currentTick++;
+            phaseStart = tickProfiler.endPhase(TickPhase.INTAKE, phaseStart);
+            eventService.executeScheduledEvents();
+            phaseStart = tickProfiler.endPhase(TickPhase.EVENTS, phaseStart);
+            clientService.executeQueuedPackets();
+            phaseStart = tickProfiler.endPhase(TickPhase.PACKETS, phaseStart);
+            clientService.flushOutBuffers();
+            phaseStart = tickProfiler.endPhase(TickPhase.FLUSH, phaseStart);
+            clientService.removeDisconnectedClients();
+            clientService.saveDirtyPlayers(currentTick);
+            tickProfiler.endPhase(TickPhase.CLEANUP, phaseStart);
+        } finally {
+            lastTickNanos = System.nanoTime() - start;
+            tickProfiler.endTick(currentTick, lastTickNanos);
+            tickThread = null;
+        }
+    }
+
+    /**
+     * Saves the whole world in one go and releases the engine's threads. Must only be called once ticks are no longer
+     * being run.
+     */
+    public void shutdown() {
+        clientService.saveAllPlayers();
+        clientService.shutdown();
+    }
+
+    /**
+     * @return the share of the tick duration the previous tick left unused, negative if it overran
+     */
+    public double getTickHeadroom() {
+        return 1.0 - (double) lastTickNanos / TICK_DURATION_NANOS;
     }
 
     public long getCurrentTick() {
         return currentTick;
     }
 
+    /**
+     * @return whether the calling thread is the one currently running a tick
+     */
+    public boolean isTickThread() {
+        return Thread.currentThread() == tickThread;
+    }
+
 }
@@ -1,21 +1,55 @@
 package com.einherji.rs2world.engine;
 
-import com.einherji.rs2world.RS2World;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 public class EventFuture {
 
+    private static final VarHandle CANCELLED;
+
+    static {
+        try {
+            CANCELLED = MethodHandles.lookup().findVarHandle(EventFuture.class, "cancelled", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final EventService eventService;
     private final Event event;
-    private boolean cancelled;
+    private volatile boolean cancelled;
     private long scheduledExecutionTime;
 
-    public EventFuture(Event event, long scheduledExecutionTime) {
+    /*
+     * Intrusive links into the bucket of the TimingWheel this future is scheduled in.
+     */
+    EventFuture previous;
+    EventFuture next;
+    int bucket = TimingWheel.UNLINKED;
+
+    /*
+     * Intrusive links into the lock-free stacks that hand futures from other threads over to the engine.
+     */
+    EventFuture nextSubmission;
+    EventFuture nextCancellation;
+    int submittedDelay;
+
+    EventFuture(EventService eventService, Event event, long scheduledExecutionTime) {
+        this.eventService = eventService;
         this.event = event;
         this.cancelled = false;
         this.scheduledExecutionTime = scheduledExecutionTime;
     }
 
+    /**
+     * Cancels this future and unlinks it from the scheduler, so that cancelled events do not linger in memory until
+     * their tick comes around. Cancellations from outside the engine thread are handed over to the engine and take
+     * effect at the start of the next tick at the latest. Safe to call from any thread.
+     */
     public void cancel() {
-        this.cancelled = true;
+        if (CANCELLED.compareAndSet(this, false, true)) {
+            eventService.cancel(this);
+        }
     }
 
     public Event getEvent() {
@@ -26,12 +60,16 @@ public class EventFuture {
         return cancelled;
     }
 
+    long getScheduledExecutionTime() {
+        return scheduledExecutionTime;
+    }
+
     void setScheduledExecutionTime(long scheduledExecutionTime) {
         this.scheduledExecutionTime = scheduledExecutionTime;
     }
 
     public long getDelay() {
-        return scheduledExecutionTime - RS2World.currentGameTick();
+        return scheduledExecutionTime - eventService.getCurrentTick();
     }
 
 }
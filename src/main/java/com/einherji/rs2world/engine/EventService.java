@@ -1,47 +1,162 @@
 package com.einherji.rs2world.engine;
 
-import com.einherji.rs2world.RS2World;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
 
+/**
+ * Schedules {@link Event}s on the game tick. The timing wheel itself is only ever touched by the engine thread; any
+ * other thread (network reactors, login workers, gateway callbacks) pushes its submissions and cancellations onto
+ * lock-free stacks instead, which the engine drains in bulk at the start of every tick.
+ */
 @Component
 public class EventService {
 
-    private final Map<Long, List<EventFuture>> eventMap;
+    private final BooleanSupplier isEngineThread;
+    private final LongSupplier currentTick;
+    private final TimingWheel timingWheel;
+    private final AtomicReference<EventFuture> submissions = new AtomicReference<>();
+    private final AtomicReference<EventFuture> cancellations = new AtomicReference<>();
+    private final AtomicInteger pendingCancellations = new AtomicInteger();
+    private long cancelledFutures;
 
-    public EventService() {
-        this.eventMap = new HashMap<>();
+    @Autowired
+    public EventService(@Lazy Engine engine) {
+        this(engine::isTickThread, engine::getCurrentTick);
     }
 
+    /**
+     * @param isEngineThread tells whether the calling thread is the one running the tick
+     * @param currentTick    supplies the last completed tick
+     */
+    public EventService(BooleanSupplier isEngineThread, LongSupplier currentTick) {
+        this.isEngineThread = isEngineThread;
+        this.currentTick = currentTick;
+        this.timingWheel = new TimingWheel(0L);
+    }
+
+    /**
+     * Schedules an event to be executed after the given amount of ticks. When called from outside the engine thread,
+     * the delay is counted from the last completed tick at the moment the submission is drained.
+     */
     public EventFuture schedule(int delay, Event event) {
         Assert.isTrue(delay > 0, "Attempted to schedule an event with negative delay!");
-        long targetTick = RS2World.currentGameTick() + delay;
-        List<EventFuture> eventList = eventMap.computeIfAbsent(targetTick, k -> new ArrayList<>());
-        EventFuture future = new EventFuture(event, targetTick);
-        eventList.add(future);
+        if (!isEngineThread.getAsBoolean()) {
+            EventFuture future = new EventFuture(this, event, -1L);
+            future.submittedDelay = delay;
+            EventFuture head;
+            do {
+                head = submissions.get();
+                future.nextSubmission = head;
+            } while (!submissions.compareAndSet(head, future));
+            return future;
+        }
+        long targetTick = currentTick.getAsLong() + delay;
+        EventFuture future = new EventFuture(this, event, targetTick);
+        timingWheel.add(future);
         return future;
     }
 
+    void cancel(EventFuture future) {
+        if (!isEngineThread.getAsBoolean()) {
+            pendingCancellations.incrementAndGet();
+            EventFuture head;
+            do {
+                head = cancellations.get();
+                future.nextCancellation = head;
+            } while (!cancellations.compareAndSet(head, future));
+            return;
+        }
+        timingWheel.remove(future);
+        cancelledFutures++;
+    }
+
+    /**
+     * Moves everything that was submitted or cancelled from other threads since the last tick into the timing wheel.
+     * Each stack is swapped out in a single operation and reversed so submissions keep their arrival order.
+     */
+    void drainSubmissions() {
+        long tick = currentTick.getAsLong();
+        EventFuture future = reverseSubmissions(submissions.getAndSet(null));
+        while (future != null) {
+            EventFuture next = future.nextSubmission;
+            future.nextSubmission = null;
+            if (!future.isCancelled()) {
+                future.setScheduledExecutionTime(tick + future.submittedDelay);
+                timingWheel.add(future);
+            }
+            future = next;
+        }
+        future = cancellations.getAndSet(null);
+        while (future != null) {
+            EventFuture next = future.nextCancellation;
+            future.nextCancellation = null;
+            timingWheel.remove(future);
+            cancelledFutures++;
+            pendingCancellations.decrementAndGet();
+            future = next;
+        }
+    }
+
     void executeScheduledEvents() {
-        List<EventFuture> eventList = eventMap.get(RS2World.currentGameTick());
-        if (eventList == null) return;
-        eventList.forEach(ft -> {
-            if (!ft.isCancelled()) {
+        long tick = currentTick.getAsLong();
+        while (timingWheel.getCurrentTick() <= tick) {
+            timingWheel.advance();
+            EventFuture ft;
+            while ((ft = timingWheel.pollExpired()) != null) {
+                if (ft.isCancelled()) continue;
                 int delay = ft.getEvent().execute();
-                if (delay > 0) {
-                    long targetTick = RS2World.currentGameTick() + delay;
-                    ft.setScheduledExecutionTime(targetTick);
-                    List<EventFuture> targetEventList = eventMap.computeIfAbsent(targetTick, k -> new ArrayList<>());
-                    targetEventList.add(ft);
+                if (delay > 0 && !ft.isCancelled()) {
+                    ft.setScheduledExecutionTime(tick + delay);
+                    timingWheel.add(ft);
                 }
             }
-        });
-        eventMap.remove(RS2World.currentGameTick());
+        }
+    }
+
+    long getCurrentTick() {
+        return currentTick.getAsLong();
+    }
+
+    /**
+     * Cancelled futures are unlinked as soon as the engine sees the cancellation, so together with
+     * {@link #getCancelledFutureCount()} this is the scheduler's entire footprint.
+     *
+     * @return the amount of futures that are scheduled and still waiting for their tick
+     */
+    public int getLiveFutureCount() {
+        return timingWheel.size();
+    }
+
+    /**
+     * @return the amount of futures cancelled from other threads that the engine has not unlinked yet
+     */
+    public int getCancelledFutureCount() {
+        return pendingCancellations.get();
+    }
+
+    /**
+     * @return the total amount of futures that have been cancelled since startup
+     */
+    public long getTotalCancelledFutures() {
+        return cancelledFutures;
+    }
+
+    private static EventFuture reverseSubmissions(EventFuture head) {
+        EventFuture reversed = null;
+        while (head != null) {
+            EventFuture next = head.nextSubmission;
+            head.nextSubmission = reversed;
+            reversed = head;
+            head = next;
+        }
+        return reversed;
     }
 
 }
@@ -0,0 +1,16 @@
+package com.einherji.rs2world.engine;
+
+/**
+ * Notified on the engine thread whenever a tick ran past the start of the next one.
+ */
+@FunctionalInterface
+public interface LateTickListener {
+
+    /**
+     * @param tick         the tick that overran
+     * @param overrunNanos how far past the start of the next tick it ended
+     * @param policy       the policy the loop applies to recover
+     */
+    void onLateTick(long tick, long overrunNanos, TickOverrunPolicy policy);
+
+}
@@ -0,0 +1,129 @@
+package com.einherji.rs2world.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs the engine on a dedicated thread against a fixed schedule of deadlines measured with {@link System#nanoTime()},
+ * so neither wall clock adjustments nor the time spent in a tick make the schedule drift. Each deadline is the previous
+ * one plus the tick duration, not the end of the previous tick plus the tick duration.
+ * <p>
+ * A tick that ends after the next deadline makes the configured {@link TickOverrunPolicy} decide when the next tick
+ * runs. If the tick itself took longer than the tick duration, rather than only starting late while catching up, it is
+ * also reported to every {@link LateTickListener}.
+ */
+@Component
+public class TickLoop implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TickLoop.class);
+
+    private static final long TICK_DURATION_NANOS = TimeUnit.MILLISECONDS.toNanos(Engine.TICK_DURATION);
+
+    private final Engine engine;
+    private final TickOverrunPolicy overrunPolicy;
+    private final int maxCatchUpTicks;
+    private final LongSupplier nanoTime;
+    private final List<LateTickListener> lateTickListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+    private Thread thread;
+
+    @Autowired
+    public TickLoop(Engine engine,
+                    @Value("${rs2world.engine.overrun-policy:CATCH_UP}") TickOverrunPolicy overrunPolicy,
+                    @Value("${rs2world.engine.max-catch-up-ticks:5}") int maxCatchUpTicks) {
+        this(engine, overrunPolicy, maxCatchUpTicks, System::nanoTime);
+    }
+
+    /**
+     * @param nanoTime the clock deadlines are measured with
+     */
+    TickLoop(Engine engine, TickOverrunPolicy overrunPolicy, int maxCatchUpTicks, LongSupplier nanoTime) {
+        this.engine = engine;
+        this.overrunPolicy = overrunPolicy;
+        this.maxCatchUpTicks = maxCatchUpTicks;
+        this.nanoTime = nanoTime;
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this, "rs2-engine");
+        thread.start();
+    }
+
+    /**
+     * Stops the loop once the running tick has finished.
+     *
+     * @return whether the engine thread ended within the given time
+     */
+    public boolean stop(long timeoutMillis) throws InterruptedException {
+        running = false;
+        if (thread == null) return true;
+        LockSupport.unpark(thread);
+        thread.join(timeoutMillis);
+        return !thread.isAlive();
+    }
+
+    public void addLateTickListener(LateTickListener listener) {
+        lateTickListeners.add(listener);
+    }
+
+    @Override
+    public void run() {
+        long deadline = nanoTime.getAsLong();
+        while (running) {
+            deadline = tick(deadline);
+            long remaining;
+            while (running && (remaining = deadline - nanoTime.getAsLong()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+        }
+    }
+
+    /**
+     * Runs the tick that is due at the given deadline.
+     *
+     * @return the deadline of the next tick
+     */
+    long tick(long deadline) {
+        long start = nanoTime.getAsLong();
+        try {
+            engine.run();
+        } catch (RuntimeException e) {
+            LOGGER.error("Encountered error while running tick {}: ", engine.getCurrentTick(), e);
+        }
+        deadline += TICK_DURATION_NANOS;
+        long now = nanoTime.getAsLong();
+        long overrun = now - deadline;
+        if (overrun > 0) {
+            if (now - start > TICK_DURATION_NANOS) onLateTick(overrun);
+            deadline = switch (overrunPolicy) {
+                case SKIP -> deadline + (overrun / TICK_DURATION_NANOS + 1) * TICK_DURATION_NANOS;
+                case CATCH_UP -> Math.max(deadline, now - maxCatchUpTicks * TICK_DURATION_NANOS);
+                case STRETCH -> now;
+            };
+        }
+        return deadline;
+    }
+
+    private void onLateTick(long overrunNanos) {
+        long tick = engine.getCurrentTick();
+        LOGGER.debug("Tick {} overran by {} ms", tick, TimeUnit.NANOSECONDS.toMillis(overrunNanos));
+        for (LateTickListener listener : lateTickListeners) {
+            try {
+                listener.onLateTick(tick, overrunNanos, overrunPolicy);
+            } catch (RuntimeException e) {
+                LOGGER.error("Encountered error while notifying late tick listener: ", e);
+            }
+        }
+    }
+
+}
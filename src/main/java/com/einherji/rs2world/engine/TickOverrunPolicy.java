@@ -0,0 +1,23 @@
+package com.einherji.rs2world.engine;
+
+/**
+ * What the {@link TickLoop} does when a tick runs past the start of the next one.
+ */
+public enum TickOverrunPolicy {
+
+    /**
+     * Drops the ticks that were missed and resumes at the next tick boundary, so ticks stay aligned to the original
+     * schedule but game time falls behind wall time.
+     */
+    SKIP,
+    /**
+     * Runs the missed ticks back to back until the loop is on schedule again, but never owes more than the configured
+     * amount of ticks; anything beyond that is dropped.
+     */
+    CATCH_UP,
+    /**
+     * Starts the next tick right away and moves the whole schedule back by the overrun.
+     */
+    STRETCH
+
+}
@@ -0,0 +1,20 @@
+package com.einherji.rs2world.engine;
+
+/**
+ * The phases of a tick, in the order the engine runs them.
+ */
+public enum TickPhase {
+
+    /**
+     * Picking up submitted events, accepted connections and completed logins.
+     */
+    INTAKE,
+    EVENTS,
+    PACKETS,
+    FLUSH,
+    /**
+     * Removing disconnected clients and collecting players for saving.
+     */
+    CLEANUP
+
+}
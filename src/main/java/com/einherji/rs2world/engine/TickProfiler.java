@@ -0,0 +1,121 @@
+package com.einherji.rs2world.engine;
+
+import com.einherji.rs2world.util.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Measures how long each tick and each of its phases take. The engine thread records into histograms and, once a
+ * minute, publishes their percentiles as a {@link TickReport}, logs it and starts over. Recording a phase is a single
+ * {@link System#nanoTime()} call and a histogram increment, so profiling is always on.
+ * <p>
+ * The worst tick of every minute is kept for a configurable window, and ticks that took longer than the tick duration
+ * are counted as overruns.
+ */
+@Component
+public class TickProfiler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TickProfiler.class);
+
+    public static final int TICKS_PER_REPORT = (int) (60_000 / Engine.TICK_DURATION);
+
+    private static final long TICK_DURATION_NANOS = Engine.TICK_DURATION * 1_000_000;
+    private static final TickPhase[] PHASES = TickPhase.values();
+
+    private final LatencyHistogram tickHistogram = new LatencyHistogram();
+    private final LatencyHistogram[] phaseHistograms = new LatencyHistogram[PHASES.length];
+    /*
+     * The worst tick of each of the last minutes, as a ring indexed by report.
+     */
+    private final long[] worstTicks;
+    private final long[] worstTickNanos;
+    private int reports;
+    private long overruns;
+    private long totalOverruns;
+    private volatile TickReport lastReport;
+
+    public TickProfiler(@Value("${rs2world.profiler.window-minutes:5}") int windowMinutes) {
+        if (windowMinutes < 1) {
+            throw new IllegalArgumentException("Profiler window must be at least one minute.");
+        }
+        for (int i = 0; i < PHASES.length; i++) {
+            phaseHistograms[i] = new LatencyHistogram();
+        }
+        worstTicks = new long[windowMinutes];
+        worstTickNanos = new long[windowMinutes];
+    }
+
+    /**
+     * Records the duration of a phase that started at the given time. Must be called from the engine thread.
+     *
+     * @return the current time, which is when the next phase starts
+     */
+    public long endPhase(TickPhase phase, long startNanos) {
+        long now = System.nanoTime();
+        phaseHistograms[phase.ordinal()].record(now - startNanos);
+        return now;
+    }
+
+    /**
+     * Records the duration of a whole tick and publishes a report once every {@value #TICKS_PER_REPORT} ticks. Must
+     * be called from the engine thread.
+     */
+    public void endTick(long tick, long durationNanos) {
+        tickHistogram.record(durationNanos);
+        int slot = reports % worstTicks.length;
+        if (durationNanos > worstTickNanos[slot]) {
+            worstTicks[slot] = tick;
+            worstTickNanos[slot] = durationNanos;
+        }
+        if (durationNanos > TICK_DURATION_NANOS) {
+            overruns++;
+            totalOverruns++;
+        }
+        if (tickHistogram.getCount() == TICKS_PER_REPORT) {
+            publish(tick);
+        }
+    }
+
+    /**
+     * @return the report of the last full minute, or null if none was published yet
+     */
+    public TickReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * @return the amount of ticks that took longer than the tick duration since the engine started
+     */
+    public long getTotalOverruns() {
+        return totalOverruns;
+    }
+
+    private void publish(long tick) {
+        Map<TickPhase, TickReport.Summary> phases = new EnumMap<>(TickPhase.class);
+        for (TickPhase phase : PHASES) {
+            phases.put(phase, TickReport.Summary.of(phaseHistograms[phase.ordinal()]));
+            phaseHistograms[phase.ordinal()].reset();
+        }
+        int worst = 0;
+        for (int i = 1; i < worstTicks.length; i++) {
+            if (worstTickNanos[i] > worstTickNanos[worst]) worst = i;
+        }
+        TickReport report = new TickReport(tick, TickReport.Summary.of(tickHistogram),
+                Collections.unmodifiableMap(phases), overruns, worstTicks[worst], worstTickNanos[worst]);
+        lastReport = report;
+        LOGGER.info("{}", report);
+        tickHistogram.reset();
+        overruns = 0;
+        reports++;
+        int slot = reports % worstTicks.length;
+        worstTicks[slot] = 0;
+        worstTickNanos[slot] = 0;
+    }
+
+}
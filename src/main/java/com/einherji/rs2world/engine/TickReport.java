@@ -0,0 +1,51 @@
+package com.einherji.rs2world.engine;
+
+import com.einherji.rs2world.util.LatencyHistogram;
+
+import java.util.Map;
+
+/**
+ * The tick timings of one minute, as published by the {@link TickProfiler}.
+ *
+ * @param lastTick       the last tick the report covers
+ * @param tick           the durations of whole ticks
+ * @param phases         the durations of each phase
+ * @param overruns       the amount of ticks that took longer than the tick duration
+ * @param worstTick      the slowest tick within the profiler's window of minutes
+ * @param worstTickNanos the duration of that tick
+ */
+public record TickReport(long lastTick,
+                         Summary tick,
+                         Map<TickPhase, Summary> phases,
+                         long overruns,
+                         long worstTick,
+                         long worstTickNanos) {
+
+    /**
+     * Percentiles of a set of durations, in nanoseconds.
+     */
+    public record Summary(long count, long mean, long p50, long p90, long p99, long p999, long max) {
+
+        static Summary of(LatencyHistogram histogram) {
+            return new Summary(histogram.getCount(), histogram.getMean(), histogram.getValueAtPercentile(50),
+                    histogram.getValueAtPercentile(90), histogram.getValueAtPercentile(99),
+                    histogram.getValueAtPercentile(99.9), histogram.getMax());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("p50=%.2fms p99=%.2fms max=%.2fms", p50 / 1e6, p99 / 1e6, max / 1e6);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder()
+                .append("Ticks up to ").append(lastTick).append(": ").append(tick)
+                .append(", overruns=").append(overruns)
+                .append(String.format(", worst tick %d took %.2fms", worstTick, worstTickNanos / 1e6));
+        phases.forEach((phase, summary) -> builder.append("; ").append(phase).append(' ').append(summary));
+        return builder.toString();
+    }
+
+}
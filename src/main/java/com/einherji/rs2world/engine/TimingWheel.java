@@ -0,0 +1,174 @@
+package com.einherji.rs2world.engine;
+
+/**
+ * A hierarchical timing wheel keyed by game tick, modelled after the classic cascading kernel timer wheels.
+ * <p>
+ * The root wheel holds one bucket per tick for the next {@value #ROOT_SIZE} ticks. Every outer wheel holds
+ * {@value #LEVEL_SIZE} buckets, each of which spans a full revolution of the wheel beneath it. Long delays are parked
+ * in the coarse wheels and cascaded one level down whenever the wheel beneath them wraps around, so the root wheel
+ * only ever contains events that are due within its current revolution.
+ * <p>
+ * Buckets are intrusive doubly linked FIFO lists threaded through the {@link EventFuture}s themselves, which keeps
+ * insertion and removal O(1), preserves scheduling order within a tick and means that turning the wheel never
+ * allocates. This class is not thread safe.
+ */
+final class TimingWheel {
+
+    static final int UNLINKED = -1;
+
+    private static final int ROOT_BITS = 8;
+    private static final int ROOT_SIZE = 1 << ROOT_BITS;
+    private static final int ROOT_MASK = ROOT_SIZE - 1;
+    private static final int LEVEL_BITS = 6;
+    private static final int LEVEL_SIZE = 1 << LEVEL_BITS;
+    private static final int LEVEL_MASK = LEVEL_SIZE - 1;
+    /**
+     * Four outer wheels give 8 + 4 * 6 = 32 bits of range, which covers every positive int delay.
+     */
+    private static final int OUTER_LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (ROOT_BITS + OUTER_LEVELS * LEVEL_BITS)) - 1;
+    /**
+     * The pseudo-bucket that holds the futures of the tick that is currently being expired.
+     */
+    private static final int EXPIRING = ROOT_SIZE + OUTER_LEVELS * LEVEL_SIZE;
+
+    private final EventFuture[] heads = new EventFuture[EXPIRING + 1];
+    private final EventFuture[] tails = new EventFuture[EXPIRING + 1];
+
+    /**
+     * The next tick that will be expired by {@link #advance()}.
+     */
+    private long currentTick;
+    private int size;
+
+    TimingWheel(long startTick) {
+        this.currentTick = startTick;
+    }
+
+    void add(EventFuture future) {
+        long target = future.getScheduledExecutionTime();
+        long delta = target - currentTick;
+        int bucket;
+        if (delta < 0) {
+            bucket = (int) (currentTick & ROOT_MASK);
+        } else if (delta < ROOT_SIZE) {
+            bucket = (int) (target & ROOT_MASK);
+        } else {
+            if (delta > MAX_DELTA) {
+                target = currentTick + MAX_DELTA;
+                delta = MAX_DELTA;
+            }
+            int level = 0;
+            while (delta >= 1L << (ROOT_BITS + (level + 1) * LEVEL_BITS)) {
+                level++;
+            }
+            int shift = ROOT_BITS + level * LEVEL_BITS;
+            bucket = ROOT_SIZE + level * LEVEL_SIZE + (int) ((target >> shift) & LEVEL_MASK);
+        }
+        link(bucket, future);
+    }
+
+    void remove(EventFuture future) {
+        if (future.bucket == UNLINKED) return;
+        EventFuture previous = future.previous;
+        EventFuture next = future.next;
+        if (previous == null) {
+            heads[future.bucket] = next;
+        } else {
+            previous.next = next;
+        }
+        if (next == null) {
+            tails[future.bucket] = previous;
+        } else {
+            next.previous = previous;
+        }
+        future.previous = null;
+        future.next = null;
+        future.bucket = UNLINKED;
+        size--;
+    }
+
+    /**
+     * Turns the wheel by one tick. Outer wheels are cascaded when the root wheel wraps around, after which the bucket
+     * of the current tick is moved aside so that its futures can be drained with {@link #pollExpired()}. Futures that
+     * are re-added while draining land in their own bucket and never in the one being expired.
+     */
+    void advance() {
+        int index = (int) (currentTick & ROOT_MASK);
+        if (index == 0) {
+            for (int level = 0; level < OUTER_LEVELS; level++) {
+                if (cascade(level) != 0) break;
+            }
+        }
+        EventFuture head = heads[index];
+        if (head != null) {
+            for (EventFuture future = head; future != null; future = future.next) {
+                future.bucket = EXPIRING;
+            }
+            EventFuture tail = tails[EXPIRING];
+            if (tail == null) {
+                heads[EXPIRING] = head;
+            } else {
+                tail.next = head;
+                head.previous = tail;
+            }
+            tails[EXPIRING] = tails[index];
+            heads[index] = null;
+            tails[index] = null;
+        }
+        currentTick++;
+    }
+
+    /**
+     * Unlinks and returns the next future that was expired by the last {@link #advance()}, or null if none remain.
+     */
+    EventFuture pollExpired() {
+        EventFuture future = heads[EXPIRING];
+        if (future != null) remove(future);
+        return future;
+    }
+
+    long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * @return the amount of futures currently linked into the wheel
+     */
+    int size() {
+        return size;
+    }
+
+    private int cascade(int level) {
+        int index = (int) ((currentTick >> (ROOT_BITS + level * LEVEL_BITS)) & LEVEL_MASK);
+        int bucket = ROOT_SIZE + level * LEVEL_SIZE + index;
+        EventFuture future = heads[bucket];
+        heads[bucket] = null;
+        tails[bucket] = null;
+        while (future != null) {
+            EventFuture next = future.next;
+            future.previous = null;
+            future.next = null;
+            future.bucket = UNLINKED;
+            size--;
+            add(future);
+            future = next;
+        }
+        return index;
+    }
+
+    private void link(int bucket, EventFuture future) {
+        EventFuture tail = tails[bucket];
+        future.previous = tail;
+        future.next = null;
+        if (tail == null) {
+            heads[bucket] = future;
+        } else {
+            tail.next = future;
+        }
+        tails[bucket] = future;
+        future.bucket = bucket;
+        size++;
+    }
+
+}
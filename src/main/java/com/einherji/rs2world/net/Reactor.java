@@ -0,0 +1,247 @@
+package com.einherji.rs2world.net;
+
+import com.einherji.rs2world.net.clients.Client;
+import com.einherji.rs2world.net.packets.Packet;
+import com.einherji.rs2world.net.packets.PacketDecoder;
+import com.einherji.rs2world.net.util.DirectBufferPool;
+import com.einherji.rs2world.net.util.Rs2Buffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An I/O reactor: a dedicated thread with its own {@link Selector} that blocks until one of its channels has I/O to
+ * handle. Every {@link Client} is pinned to a single reactor for its whole lifetime, so reading, decoding and writing
+ * for that client never leave this thread. Other threads hand work over through {@link #execute(Runnable)}, which
+ * wakes the selector up instead of racing with it.
+ */
+public final class Reactor implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Reactor.class);
+
+    /**
+     * The largest frame a client may send. Inbound buffers are grown up to this size for frames that do not fit.
+     */
+    private static final int MAX_FRAME_SIZE = 65536;
+    /**
+     * The maximum amount of queued frames handed to a single gathering write.
+     */
+    private static final int MAX_GATHERED_FRAMES = 64;
+
+    private final String name;
+    private final Selector selector;
+    private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ByteBuffer[] gatheredFrames = new ByteBuffer[MAX_GATHERED_FRAMES];
+    private final DirectBufferPool bufferPool;
+    private final PacketDecoder packetDecoder;
+    private volatile Thread thread;
+
+    Reactor(String name, DirectBufferPool bufferPool, PacketDecoder packetDecoder) {
+        this.name = name;
+        this.bufferPool = bufferPool;
+        this.packetDecoder = packetDecoder;
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    void start() {
+        thread = new Thread(this, name);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                selector.select();
+                runPendingTasks();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isReadable()) {
+                        read(key);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        write0((Client) key.attachment());
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error("Encountered error during select cycle: ", e);
+            }
+        }
+    }
+
+    /**
+     * Runs the task on this reactor's thread. Safe to call from any thread; the selector is woken up so the task does
+     * not wait for the next I/O event.
+     */
+    public void execute(Runnable task) {
+        pendingTasks.offer(task);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Registers the client's channel with this reactor's selector and leases the client's inbound buffer. The
+     * registration itself happens on the reactor thread, after which the client's selection key is available.
+     */
+    void register(Client client) {
+        connections.incrementAndGet();
+        execute(() -> {
+            try {
+                client.setInBuffer(Rs2Buffer.createReadBuffer(bufferPool.acquire()));
+                SelectionKey key = client.getChannel().register(selector, SelectionKey.OP_READ, client);
+                client.setSelectionKey(key);
+            } catch (ClosedChannelException e) {
+                close(client);
+            }
+        });
+    }
+
+    /**
+     * Writes the client's queued output on this reactor's thread. Safe to call from any thread.
+     */
+    public void write(Client client) {
+        execute(() -> write0(client));
+    }
+
+    /**
+     * Writes the queued output of a batch of clients pinned to this reactor with a single hand-over. Safe to call from
+     * any thread.
+     */
+    public void write(List<Client> clients) {
+        execute(() -> clients.forEach(this::write0));
+    }
+
+    /**
+     * Closes the client's connection on this reactor's thread. Safe to call from any thread.
+     */
+    public void disconnect(Client client) {
+        execute(() -> close(client));
+    }
+
+    /**
+     * @return the amount of connections currently pinned to this reactor
+     */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * @return the amount of tasks handed to this reactor that it has not started yet
+     */
+    int getPendingTaskCount() {
+        return pendingTasks.size();
+    }
+
+    private void runPendingTasks() {
+        Runnable task;
+        while ((task = pendingTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("Encountered error while running reactor task: ", e);
+            }
+        }
+    }
+
+    /**
+     * Reads straight into the client's inbound buffer and decodes every complete frame in place. Whatever is left is
+     * the start of a frame that is split across reads; it is compacted to the front of the buffer and completed by
+     * the next read. A frame that does not fit in the buffer at all makes the buffer grow.
+     */
+    private void read(SelectionKey key) {
+        Client client = (Client) key.attachment();
+        ByteBuffer buffer = client.getInBuffer().getBuffer();
+        try {
+            int bytesRead = client.getChannel().read(buffer);
+            if (bytesRead == -1) {
+                close(client);
+                return;
+            }
+        } catch(IOException ioe) {
+            LOGGER.error("Encountered error during read operation: ", ioe);
+            close(client);
+            return;
+        }
+        client.getTimeoutTimer().reset();
+        buffer.flip();
+        Packet packet;
+        while ((packet = packetDecoder.decode(client, client.getInBuffer())) != null) {
+            client.queuePacket(packet);
+        }
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            if (buffer.capacity() >= MAX_FRAME_SIZE) {
+                LOGGER.warn("Closing connection that sent a frame larger than {} bytes", MAX_FRAME_SIZE);
+                close(client);
+                return;
+            }
+            bufferPool.grow(client.getInBuffer(), buffer.capacity() + 1);
+        }
+    }
+
+    /**
+     * Drains the client's outbound queue with gathering writes, several frames per system call. When the kernel send
+     * buffer is full, the remaining bytes stay queued and OP_WRITE interest is registered so writing resumes as soon
+     * as the socket drains. Interest is dropped again once the queue is empty.
+     */
+    private void write0(Client client) {
+        SelectionKey key = client.getSelectionKey();
+        if (client.isDisconnected() || key == null || !key.isValid()) return;
+        try {
+            while (!client.removeWritten(bufferPool)) {
+                int count = client.peekOutbound(gatheredFrames);
+                client.getChannel().write(gatheredFrames, 0, count);
+                boolean socketFull = gatheredFrames[count - 1].hasRemaining();
+                Arrays.fill(gatheredFrames, 0, count, null);
+                if (socketFull) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        } catch (IOException ioe) {
+            LOGGER.error("Encountered error during write operation: ", ioe);
+            close(client);
+        }
+    }
+
+    /**
+     * Closes the connection and returns the inbound buffer and any unwritten output to the pool. The client itself is
+     * unregistered by the engine, which releases the out buffer it owns.
+     */
+    private void close(Client client) {
+        if (!client.markDisconnected(bufferPool)) return;
+        SelectionKey key = client.getSelectionKey();
+        if (key != null) key.cancel();
+        try {
+            client.getChannel().close();
+        } catch (IOException ioe) {
+            LOGGER.error("Encountered error while closing channel: ", ioe);
+        }
+        if (client.getInBuffer() != null) {
+            bufferPool.release(client.getInBuffer().getBuffer());
+            client.setInBuffer(null);
+        }
+        connections.decrementAndGet();
+    }
+
+}
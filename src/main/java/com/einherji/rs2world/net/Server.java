@@ -4,13 +4,10 @@ import com.einherji.rs2world.net.clients.Client;
 import com.einherji.rs2world.net.clients.ClientService;
 import com.einherji.rs2world.net.login.LoginException;
 import com.einherji.rs2world.net.login.LoginResponseCodes;
-import com.einherji.rs2world.net.packets.Packet;
 import com.einherji.rs2world.net.packets.PacketDecoder;
-import com.einherji.rs2world.net.util.Rs2Buffer;
-import com.einherji.rs2world.net.util.Rs2ReadBuffer;
-import com.einherji.rs2world.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
@@ -20,41 +17,40 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.util.Iterator;
-import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
+/**
+ * The acceptor half of the network layer. {@link #run()} is meant to be given a dedicated thread, which starts the
+ * I/O {@link Reactor}s and then blocks until connections arrive. Every accepted channel is pinned to the least loaded
+ * reactor, which takes care of all further I/O for it.
+ */
 @Component
 public final class Server implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Server.class);
 
     private static final int PORT = 43594;
-    private static final int WORKERS = 3;
-    private static final int BUFFER_SIZE = 2048;
-    private static final int ACCEPT_ATTEMPTS = 5;
-    private static final long ACCEPT_DELAY = 10000;
 
     private final ServerSocketChannel serverSocketChannel;
-    private final Selector selector;
-    private final ExecutorService workers;
-    private final ThreadLocal<Rs2Buffer> workerBuffers;
+    private final Selector acceptSelector;
+    private final Reactor[] reactors;
+    private final ByteBuffer responseBuffer = ByteBuffer.allocate(1);
     private final ClientService clientService;
-    private final PacketDecoder packetDecoder;
-    private final Timer acceptTimer = new Timer();
+    private int nextReactor;
 
-    public Server(ClientService clientService, PacketDecoder packetDecoder) {
+    public Server(ClientService clientService,
+                  @Value("${rs2world.network.reactors:0}") int reactorCount) {
         this.clientService = clientService;
-        this.packetDecoder = packetDecoder;
-        workers = Executors.newFixedThreadPool(WORKERS);
-        workerBuffers = ThreadLocal.withInitial(() -> Rs2Buffer.createReadBuffer(ByteBuffer.allocateDirect(BUFFER_SIZE)));
+        int count = reactorCount > 0 ? reactorCount : Runtime.getRuntime().availableProcessors();
+        reactors = new Reactor[count];
+        for (int i = 0; i < count; i++) {
+            reactors[i] = new Reactor("rs2-reactor-" + i, clientService.getBufferPool(), new PacketDecoder());
+        }
         try {
-            selector = Selector.open();
+            acceptSelector = Selector.open();
             serverSocketChannel = ServerSocketChannel.open();
             serverSocketChannel.socket().bind(new InetSocketAddress(PORT));
             serverSocketChannel.configureBlocking(false);
-            serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+            serverSocketChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -62,30 +58,32 @@ public final class Server implements Runnable {
 
     @Override
     public void run() {
+        for (Reactor reactor : reactors) {
+            reactor.start();
+        }
         try {
-            selector.selectNow();
-            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
-            while (keys.hasNext()) {
-                SelectionKey key = keys.next();
-                if (key.isAcceptable() && acceptTimer.elapsed(ACCEPT_DELAY)) {
-                    acceptTimer.reset();
-                    workers.submit(this::acceptConnections);
-                }
-                if (key.isReadable()) {
-                    workers.submit(() -> read(key));
-                }
-                keys.remove();
+            while (!Thread.currentThread().isInterrupted()) {
+                acceptSelector.select();
+                acceptSelector.selectedKeys().clear();
+                acceptConnections();
             }
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            LOGGER.error("Encountered error during select cycle: ", e);
         }
     }
 
+    public Reactor[] getReactors() {
+        return reactors;
+    }
+
+    /**
+     * Accepts every pending connection. Connections are never throttled here; how fast logins are let into the world
+     * is up to the login admission on the engine. Only a registry without free slots turns connections away.
+     */
     //TODO: host validation: needs to happen after the gateway
     private void acceptConnections() {
-        ByteBuffer threadBuffer = workerBuffers.get().getBuffer();
         boolean worldFull = false;
-        for (int i = 0; i < ACCEPT_ATTEMPTS; i++) {
+        while (true) {
             SocketChannel channel = null;
             try {
                 channel = serverSocketChannel.accept();
@@ -93,56 +91,47 @@ public final class Server implements Runnable {
                 channel.configureBlocking(false);
 
                 if (worldFull) {
-                    handleException(channel, threadBuffer, LoginResponseCodes.WORLD_FULL);
+                    handleException(channel, LoginResponseCodes.WORLD_FULL);
                     continue;
                 }
 
-                UUID uuid = UUID.randomUUID();
-                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, uuid);
-                clientService.create(key, channel, uuid);
+                Reactor reactor = leastLoadedReactor();
+                Client client = clientService.create(channel, reactor);
+                reactor.register(client);
             } catch (IOException ioe) {
                 LOGGER.error("Encountered error during accept cycle: ", ioe);
+                if (channel == null) return;
             } catch(LoginException le) {
-                handleException(channel, threadBuffer, le.getResponseCode());
+                handleException(channel, le.getResponseCode());
                 if (le.getResponseCode() == LoginResponseCodes.WORLD_FULL)
                     worldFull = true;
             }
         }
     }
 
-    private void read(SelectionKey key) {
-        Rs2ReadBuffer buffer = (Rs2ReadBuffer) workerBuffers.get();
-        Client client = clientService.get((UUID) key.attachment());
-        if (client == null) {
-            key.cancel();
-            return;
-        }
-        try {
-            buffer.getBuffer().clear();
-            int bytesRead = client.getChannel().read(buffer.getBuffer());
-            if (bytesRead == -1) {
-                //TODO: properly terminate client
-                client.getSelectionKey().cancel();
-                return;
+    /**
+     * Picks the reactor with the fewest connections. The scan starts one past the previous pick, so reactors with an
+     * equal load are handed out round-robin.
+     */
+    private Reactor leastLoadedReactor() {
+        Reactor selected = null;
+        for (int i = 0; i < reactors.length; i++) {
+            Reactor reactor = reactors[(nextReactor + i) % reactors.length];
+            if (selected == null || reactor.getConnectionCount() < selected.getConnectionCount()) {
+                selected = reactor;
             }
-        } catch(IOException ioe) {
-            LOGGER.error("Encountered error during read operation: ", ioe);
-        }
-        client.getTimeoutTimer().reset();
-        buffer.getBuffer().flip();
-        Packet packet;
-        while ((packet = packetDecoder.decode(client.getStatus(), buffer)) != null) {
-            client.queuePacket(packet);
         }
+        nextReactor = (nextReactor + 1) % reactors.length;
+        return selected;
     }
 
-    private void handleException(SocketChannel channel, ByteBuffer buffer, byte responseCode) {
+    private void handleException(SocketChannel channel, byte responseCode) {
         if (channel == null) return;
         try {
-            buffer.clear();
-            buffer.put(responseCode);
-            buffer.flip();
-            channel.write(buffer);
+            responseBuffer.clear();
+            responseBuffer.put(responseCode);
+            responseBuffer.flip();
+            channel.write(responseBuffer);
             channel.close();
         } catch (IOException e) {
             throw new RuntimeException(e);
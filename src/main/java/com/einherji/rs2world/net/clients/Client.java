@@ -1,75 +1,371 @@
 package com.einherji.rs2world.net.clients;
 
+import com.einherji.rs2world.net.Reactor;
 import com.einherji.rs2world.net.packets.Packet;
 import com.einherji.rs2world.net.packets.PacketContext;
+import com.einherji.rs2world.net.packets.PooledPacket;
+import com.einherji.rs2world.net.util.DirectBufferPool;
+import com.einherji.rs2world.net.util.ISAACCipher;
+import com.einherji.rs2world.net.util.Rs2ReadBuffer;
 import com.einherji.rs2world.net.util.Rs2WriteBuffer;
+import com.einherji.rs2world.player.Player;
+import com.einherji.rs2world.util.MpscArrayQueue;
 import com.einherji.rs2world.util.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.ArrayDeque;
 import java.util.Objects;
-import java.util.UUID;
 
 public class Client {
 
-    private final UUID uuid;
+    private static final Logger LOGGER = LoggerFactory.getLogger(Client.class);
+
+    private static final int PACKET_QUEUE_CAPACITY = 256;
+
     private final SocketChannel channel;
-    private final SelectionKey selectionKey;
+    private final Reactor reactor;
     private final Rs2WriteBuffer outBuffer;
     private final Timer timeoutTimer = new Timer();
-    private final List<Packet> packetQueue = new ArrayList<>();
+    private final MpscArrayQueue<Packet> packetQueue = new MpscArrayQueue<>(PACKET_QUEUE_CAPACITY);
+    /*
+     * Packets the parallel packet phase held back because they touch shared state.
+     */
+    private final ArrayDeque<Packet> deferredPackets = new ArrayDeque<>();
+    private final int outboundHighWaterMark;
+
+    /*
+     * Frames that were flushed but not yet written to the socket, guarded by the queue itself. Only the engine adds
+     * frames and only the reactor removes them.
+     */
+    private final ArrayDeque<ByteBuffer> outboundQueue = new ArrayDeque<>();
+    private long queuedBytes;
+    private boolean writeScheduled;
 
-    private ClientStatus status;
+    /*
+     * The slot in the client registry, and the position in the engine's dense array of active clients, which is owned
+     * by the engine thread.
+     */
+    private int index = -1;
+    private int activeIndex = -1;
 
-    public Client(UUID uuid,
-                  SocketChannel channel,
-                  SelectionKey selectionKey,
-                  Rs2WriteBuffer outBuffer) {
-        this.uuid = uuid;
+    private volatile SelectionKey selectionKey;
+    private Rs2ReadBuffer inBuffer;
+    /*
+     * The inbound cipher and the header of a game packet whose payload has not fully arrived yet, owned by the reactor.
+     */
+    private ISAACCipher inCipher;
+    private ISAACCipher outCipher;
+    private int pendingOpcode = -1;
+    private int pendingLength = -1;
+    private boolean focused = true;
+    private long serverSessionKey;
+    private Player player;
+    private volatile ClientStatus status;
+    private volatile boolean disconnected;
+
+    public Client(SocketChannel channel,
+                  Reactor reactor,
+                  Rs2WriteBuffer outBuffer,
+                  int outboundHighWaterMark) {
         this.channel = channel;
-        this.selectionKey = selectionKey;
+        this.reactor = reactor;
         this.outBuffer = outBuffer;
+        this.outboundHighWaterMark = outboundHighWaterMark;
         this.status = ClientStatus.CONNECTED;
     }
 
+    /**
+     * Queues a decoded packet for the engine. Called by the reactor; a client that fills its queue faster than the
+     * engine drains it is flooding the server and gets disconnected.
+     */
     public void queuePacket(Packet packet) {
         Objects.requireNonNull(packet);
-        synchronized (packetQueue) {
-            packetQueue.add(packet);
+        if (!packetQueue.offer(packet)) {
+            LOGGER.warn("Disconnecting client {} for exceeding {} queued packets", index, packetQueue.capacity());
+            disconnect();
+        }
+    }
+
+    /**
+     * Executes at most the given amount of queued packets, oldest first, and recycles the pooled ones. Whatever is left
+     * waits for the next tick.
+     */
+    public void triggerQueuedPackets(PacketContext ctx, int limit) {
+        for (int i = 0; i < limit; i++) {
+            Packet packet = packetQueue.poll();
+            if (packet == null) return;
+            execute(packet, ctx);
+        }
+    }
+
+    /**
+     * Executes the player-local packets among at most the given amount of queued packets and holds the others back
+     * for {@link #triggerDeferredPackets(PacketContext)}. May run on a pool thread, but never on two threads at once
+     * for the same client.
+     */
+    public void triggerLocalPackets(PacketContext ctx, int limit) {
+        for (int i = 0; i < limit; i++) {
+            Packet packet = packetQueue.poll();
+            if (packet == null) return;
+            if (packet.isPlayerLocal()) {
+                execute(packet, ctx);
+            } else {
+                deferredPackets.offer(packet);
+            }
         }
     }
 
-    public void triggerQueuedPackets(PacketContext ctx) {
-        synchronized (packetQueue) {
-            packetQueue.forEach(packet -> packet.execute(this, ctx));
-            packetQueue.clear();
+    /**
+     * Executes the packets that {@link #triggerLocalPackets(PacketContext, int)} held back, in the order they arrived
+     * among themselves. By now the player-local packets of the same tick have already run, including those that
+     * arrived after these.
+     */
+    public void triggerDeferredPackets(PacketContext ctx) {
+        Packet packet;
+        while ((packet = deferredPackets.poll()) != null) {
+            execute(packet, ctx);
         }
     }
 
+    private void execute(Packet packet, PacketContext ctx) {
+        packet.execute(this, ctx);
+        if (packet instanceof PooledPacket pooled) pooled.recycle();
+    }
+
+    /**
+     * Moves everything written to the out buffer onto the outbound queue and asks the reactor to write it right away.
+     * Packets should leave their output in the out buffer instead, which the engine flushes once per tick.
+     */
     public void flushOutBuffer() {
-        try {
-            outBuffer.getBuffer().flip();
-            channel.write(outBuffer.getBuffer());
-        } catch(IOException ioe) {
+        if (sealOutBuffer()) reactor.write(this);
+    }
 
+    /**
+     * Moves everything written to the out buffer onto the outbound queue as a single frame, encrypting the opcodes
+     * written with plain headers on the way. The bytes stay queued until the socket has accepted all of them. A client
+     * whose queue grows past the high-water mark is not keeping up with its traffic and gets disconnected.
+     *
+     * @return whether the caller has to schedule a write with the reactor, which is only the case for the first frame
+     * of a drain cycle
+     */
+    boolean sealOutBuffer() {
+        long unwritten;
+        synchronized (outboundQueue) {
+            if (disconnected) {
+                outBuffer.getBuffer().clear();
+                return false;
+            }
+            if (outBuffer.getBuffer().position() == 0) return false;
+            if (outCipher != null) outBuffer.encryptOpcodes(outCipher);
+            ByteBuffer frame = outBuffer.detach();
+            outboundQueue.addLast(frame);
+            queuedBytes += frame.remaining();
+            unwritten = queuedBytes;
+            if (unwritten <= outboundHighWaterMark) {
+                if (writeScheduled) return false;
+                writeScheduled = true;
+                return true;
+            }
         }
+        LOGGER.warn("Disconnecting client {} with {} bytes of unwritten output", index, unwritten);
+        disconnect();
+        return false;
     }
 
-    public UUID getUuid() {
-        return uuid;
+    /**
+     * Copies references to the queued frames into the array, oldest first.
+     *
+     * @return the amount of frames copied
+     */
+    public int peekOutbound(ByteBuffer[] frames) {
+        synchronized (outboundQueue) {
+            int count = 0;
+            for (ByteBuffer frame : outboundQueue) {
+                if (count == frames.length) break;
+                frames[count++] = frame;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Removes the frames that have been written completely and releases them to the pool. Once the queue is empty,
+     * the next flush schedules a new write.
+     *
+     * @return whether the queue is empty
+     */
+    public boolean removeWritten(DirectBufferPool pool) {
+        synchronized (outboundQueue) {
+            ByteBuffer frame;
+            while ((frame = outboundQueue.peekFirst()) != null && !frame.hasRemaining()) {
+                outboundQueue.pollFirst();
+                queuedBytes -= frame.limit();
+                pool.release(frame);
+            }
+            if (outboundQueue.isEmpty()) {
+                writeScheduled = false;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Marks this client as disconnected and releases everything still queued for writing.
+     *
+     * @return false if the client was already disconnected
+     */
+    public boolean markDisconnected(DirectBufferPool pool) {
+        synchronized (outboundQueue) {
+            if (disconnected) return false;
+            disconnected = true;
+            ByteBuffer frame;
+            while ((frame = outboundQueue.pollFirst()) != null) {
+                pool.release(frame);
+            }
+            queuedBytes = 0;
+            return true;
+        }
+    }
+
+    /**
+     * Closes this client's connection on its reactor thread. Safe to call from any thread.
+     */
+    public void disconnect() {
+        reactor.disconnect(this);
+    }
+
+    public boolean isDisconnected() {
+        return disconnected;
+    }
+
+    /**
+     * @return this client's slot in the client registry, or -1 until it has been registered
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    int getActiveIndex() {
+        return activeIndex;
+    }
+
+    void setActiveIndex(int activeIndex) {
+        this.activeIndex = activeIndex;
     }
 
     public SocketChannel getChannel() {
         return channel;
     }
 
+    public Reactor getReactor() {
+        return reactor;
+    }
+
+    /**
+     * @return the key of this client's channel, or null until its reactor has completed the registration
+     */
     public SelectionKey getSelectionKey() {
         return selectionKey;
     }
 
+    public void setSelectionKey(SelectionKey selectionKey) {
+        this.selectionKey = selectionKey;
+    }
+
+    /**
+     * @return the buffer inbound bytes accumulate in until they form complete frames, owned by this client's reactor
+     */
+    public Rs2ReadBuffer getInBuffer() {
+        return inBuffer;
+    }
+
+    public void setInBuffer(Rs2ReadBuffer inBuffer) {
+        this.inBuffer = inBuffer;
+    }
+
+    /**
+     * @return the cipher that decrypts inbound opcodes, or null until the client has logged in
+     */
+    public ISAACCipher getInCipher() {
+        return inCipher;
+    }
+
+    public void setInCipher(ISAACCipher inCipher) {
+        this.inCipher = inCipher;
+    }
+
+    /**
+     * @return the decrypted opcode of the partially received game packet, or -1 if the next byte starts a new one
+     */
+    public int getPendingOpcode() {
+        return pendingOpcode;
+    }
+
+    public void setPendingOpcode(int pendingOpcode) {
+        this.pendingOpcode = pendingOpcode;
+    }
+
+    /**
+     * @return the payload length of the partially received game packet, which may still be a variable size marker
+     */
+    public int getPendingLength() {
+        return pendingLength;
+    }
+
+    public void setPendingLength(int pendingLength) {
+        this.pendingLength = pendingLength;
+    }
+
+    /**
+     * @return the cipher that encrypts outbound opcodes, or null until the client has logged in
+     */
+    public ISAACCipher getOutCipher() {
+        return outCipher;
+    }
+
+    public void setOutCipher(ISAACCipher outCipher) {
+        this.outCipher = outCipher;
+    }
+
+    /**
+     * @return the session key this client was handed during the handshake
+     */
+    public long getServerSessionKey() {
+        return serverSessionKey;
+    }
+
+    public void setServerSessionKey(long serverSessionKey) {
+        this.serverSessionKey = serverSessionKey;
+    }
+
+    /**
+     * @return the player this client controls, or null until the client has logged in
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    public void setPlayer(Player player) {
+        this.player = player;
+    }
+
+    public boolean isFocused() {
+        return focused;
+    }
+
+    public void setFocused(boolean focused) {
+        this.focused = focused;
+    }
+
     public Rs2WriteBuffer getOutBuffer() {
         return outBuffer;
     }
@@ -1,43 +1,241 @@
 package com.einherji.rs2world.net.clients;
 
+import com.einherji.rs2world.net.Reactor;
+import com.einherji.rs2world.net.login.LoginException;
+import com.einherji.rs2world.net.login.LoginResponseCodes;
 import com.einherji.rs2world.net.packets.PacketContext;
+import com.einherji.rs2world.net.util.DirectBufferPool;
 import com.einherji.rs2world.net.util.Rs2Buffer;
+import com.einherji.rs2world.persistence.PlayerSaveService;
+import com.einherji.rs2world.player.Player;
+import com.einherji.rs2world.util.ThreadSafeArrayWrapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.nio.ByteBuffer;
-import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 
 @Component
 public class ClientService {
 
-    private final Map<UUID, Client> clientUuidMap;
+    private static final int MIN_BUFFER_SIZE = 2048;
+    private static final int MAX_BUFFER_SIZE = 65536;
+    private static final int SLAB_SIZE = 1 << 20;
+    /**
+     * The amount of clients a pool thread handles in one go during the parallel packet phase.
+     */
+    private static final int PARALLEL_CHUNK_SIZE = 32;
+
+    private final ThreadSafeArrayWrapper<Client> clients;
+    /*
+     * Clients that were accepted but not yet picked up by the engine, and the dense array the engine iterates every
+     * tick. The active clients are owned by the engine thread.
+     */
+    private final Queue<Client> pendingClients = new ConcurrentLinkedQueue<>();
+    private final Client[] activeClients;
+    private int activeCount;
     private final PacketContext packetContext;
+    private final PlayerSaveService playerSaveService;
+    private final DirectBufferPool bufferPool;
+    private final int outboundHighWaterMark;
+    private final int packetsPerTick;
+    private final ForkJoinPool packetPool;
 
-    public ClientService(PacketContext packetContext) {
+    public ClientService(PacketContext packetContext,
+                         PlayerSaveService playerSaveService,
+                         @Value("${rs2world.world.capacity:2048}") int capacity,
+                         @Value("${rs2world.network.outbound-high-water-mark:131072}") int outboundHighWaterMark,
+                         @Value("${rs2world.network.packets-per-tick:32}") int packetsPerTick,
+                         @Value("${rs2world.engine.packet-threads:1}") int packetThreads) {
         this.packetContext = packetContext;
-        clientUuidMap = new HashMap<>();
+        this.playerSaveService = playerSaveService;
+        this.outboundHighWaterMark = outboundHighWaterMark;
+        this.packetsPerTick = packetsPerTick;
+        clients = ThreadSafeArrayWrapper.wrap(new Client[capacity]);
+        activeClients = new Client[capacity];
+        bufferPool = new DirectBufferPool(MIN_BUFFER_SIZE, MAX_BUFFER_SIZE, SLAB_SIZE);
+        packetPool = packetThreads > 1 ? new ForkJoinPool(packetThreads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("rs2-packets-" + thread.getPoolIndex());
+            return thread;
+        }, null, false) : null;
     }
 
-    public Client create(SelectionKey key, SocketChannel channel, UUID uuid) {
-        //TODO: pool the creation of clients and/or their internal buffers
-        Client client = new Client(uuid, channel, key, Rs2Buffer.createWriteBuffer(ByteBuffer.allocate(2048)));
-        synchronized (clientUuidMap) {
-            clientUuidMap.put(client.getUuid(), client);
+    /**
+     * Creates a client for the channel and gives it a slot in the registry. The engine starts processing the client
+     * from the next tick on.
+     *
+     * @throws LoginException with {@link LoginResponseCodes#WORLD_FULL} if every slot is taken
+     */
+    public Client create(SocketChannel channel, Reactor reactor) {
+        //TODO: pool the creation of clients
+        Client client = new Client(channel, reactor, Rs2Buffer.createWriteBuffer(bufferPool), outboundHighWaterMark);
+        int index = clients.place(client);
+        if (index == -1) {
+            bufferPool.release(client.getOutBuffer().getBuffer());
+            throw new LoginException(LoginResponseCodes.WORLD_FULL);
         }
+        client.setIndex(index);
+        pendingClients.offer(client);
         return client;
+    }
 
+    public Client get(int index) {
+        return clients.get(index);
     }
 
-    public Client get(UUID uuid) {
-        return clientUuidMap.get(uuid);
+    /**
+     * Moves the clients that were accepted since the last tick into the active clients. Must be called from the engine
+     * thread.
+     */
+    public void registerPendingClients() {
+        Client client;
+        while ((client = pendingClients.poll()) != null) {
+            client.setActiveIndex(activeCount);
+            activeClients[activeCount++] = client;
+        }
     }
 
+    /**
+     * Executes the packets every client queued since the last tick, up to the per-tick cap per client, so a single
+     * flooding client cannot stretch the tick.
+     * <p>
+     * With more than one packet thread configured, this runs in two phases. First the clients are split into chunks
+     * that a work-stealing pool executes the player-local packets of, while the engine thread waits for all of them.
+     * The packets that touch shared state are held back and then executed on the engine thread, client by client.
+     */
     public void executeQueuedPackets() {
-        clientUuidMap.values().forEach(client -> client.triggerQueuedPackets(packetContext));
+        if (packetPool == null) {
+            for (int i = 0; i < activeCount; i++) {
+                Client client = activeClients[i];
+                if (!client.isDisconnected()) client.triggerQueuedPackets(packetContext, packetsPerTick);
+            }
+            return;
+        }
+        packetPool.invoke(new LocalPacketTask(0, activeCount));
+        for (int i = 0; i < activeCount; i++) {
+            Client client = activeClients[i];
+            if (!client.isDisconnected()) client.triggerDeferredPackets(packetContext);
+        }
+    }
+
+    /**
+     * Flushes the output every client accumulated during the tick. Each dirty client's output is sealed into one frame,
+     * and the clients are handed to their reactors in one batch per reactor, so the reactors write in parallel and the
+     * amount of writes per tick is bounded by the amount of clients rather than the amount of messages.
+     */
+    public void flushOutBuffers() {
+        Map<Reactor, List<Client>> pendingWrites = new IdentityHashMap<>();
+        for (int i = 0; i < activeCount; i++) {
+            Client client = activeClients[i];
+            if (client.sealOutBuffer()) {
+                pendingWrites.computeIfAbsent(client.getReactor(), reactor -> new ArrayList<>()).add(client);
+            }
+        }
+        pendingWrites.forEach(Reactor::write);
+    }
+
+    /**
+     * Unregisters the clients whose connection was closed by their reactor, frees their slot, returns their outbound
+     * buffer to the pool and collects their player's final state for saving. The last active client takes the place
+     * of a removed one, which keeps the active clients dense. Must be called from the engine thread, which owns the
+     * outbound buffers.
+     */
+    public void removeDisconnectedClients() {
+        for (int i = activeCount - 1; i >= 0; i--) {
+            Client client = activeClients[i];
+            if (!client.isDisconnected()) continue;
+            Client last = activeClients[--activeCount];
+            activeClients[i] = last;
+            last.setActiveIndex(i);
+            activeClients[activeCount] = null;
+            client.setActiveIndex(-1);
+            clients.remove(client.getIndex());
+            bufferPool.release(client.getOutBuffer().getBuffer());
+            if (client.getPlayer() != null) playerSaveService.collect(client.getPlayer());
+        }
+    }
+
+    /**
+     * Collects every dirty player and hands them to the background writer, once every save interval. Must be called
+     * from the engine thread.
+     */
+    public void saveDirtyPlayers(long tick) {
+        if (!playerSaveService.isDue(tick)) return;
+        for (int i = 0; i < activeCount; i++) {
+            Player player = activeClients[i].getPlayer();
+            if (player != null) playerSaveService.collect(player);
+        }
+        playerSaveService.flush();
+    }
+
+    /**
+     * Collects every player in the world and writes them in one batch, blocking until they are stored. Must only be
+     * called once the engine has stopped.
+     */
+    public void saveAllPlayers() {
+        for (int i = 0; i < activeCount; i++) {
+            Player player = activeClients[i].getPlayer();
+            if (player != null) playerSaveService.collect(player);
+        }
+        playerSaveService.flushAndWait();
+    }
+
+    /**
+     * Stops the packet threads, if any. Must only be called once the engine has stopped.
+     */
+    public void shutdown() {
+        if (packetPool != null) packetPool.shutdown();
+    }
+
+    /**
+     * @return the amount of clients the engine is currently processing
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * @return the allocator that inbound and outbound client buffers are leased from
+     */
+    public DirectBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Executes the player-local packets of a range of active clients, splitting the range until it is small enough.
+     */
+    @SuppressWarnings("serial")
+    private final class LocalPacketTask extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+
+        LocalPacketTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_CHUNK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    Client client = activeClients[i];
+                    if (!client.isDisconnected()) client.triggerLocalPackets(packetContext, packetsPerTick);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new LocalPacketTask(from, middle), new LocalPacketTask(middle, to));
+        }
     }
 
 }
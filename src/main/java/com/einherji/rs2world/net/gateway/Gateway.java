@@ -1,6 +1,7 @@
 package com.einherji.rs2world.net.gateway;
 
-import com.einherji.rs2world.net.packets.impl.LoginPacketBuilder.LoginPacket;
+import com.einherji.rs2world.net.login.LoginCredentials;
+import com.einherji.rs2world.net.login.LoginResponse;
 
 /**
  * A 'Gateway' is a collection of actions that may or may not need to be delegated to an external resource,
@@ -14,6 +15,11 @@ import com.einherji.rs2world.net.packets.impl.LoginPacketBuilder.LoginPacket;
  */
 public interface Gateway {
 
-    void registerLoginRequest(LoginPacket packet);
+    /**
+     * Verifies the credentials and loads the player. Called from the login pipeline, so implementations may block.
+     *
+     * @return the response to send to the client
+     */
+    LoginResponse login(LoginCredentials credentials);
 
 }
@@ -1,16 +1,48 @@
 package com.einherji.rs2world.net.gateway;
 
 import com.einherji.rs2world.Rs2WorldProfiles;
-import com.einherji.rs2world.net.packets.impl.LoginPacketBuilder.LoginPacket;
+import com.einherji.rs2world.net.login.LoginCredentials;
+import com.einherji.rs2world.net.login.LoginResponse;
+import com.einherji.rs2world.net.login.LoginResponseCodes;
+import com.einherji.rs2world.net.login.PasswordService;
+import com.einherji.rs2world.persistence.PlayerRepository;
+import com.einherji.rs2world.persistence.PlayerSaveService;
+import com.einherji.rs2world.player.Player;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+import java.util.Optional;
+
 @Component
 @Profile(Rs2WorldProfiles.LOCAL)
 public class LocalGateway implements Gateway {
 
-    @Override
-    public void registerLoginRequest(LoginPacket packet) {
+    private final PasswordService passwordService;
+    private final PlayerRepository playerRepository;
+    private final PlayerSaveService playerSaveService;
 
+    public LocalGateway(PasswordService passwordService,
+                        PlayerRepository playerRepository,
+                        PlayerSaveService playerSaveService) {
+        this.passwordService = passwordService;
+        this.playerRepository = playerRepository;
+        this.playerSaveService = playerSaveService;
+    }
+
+    /**
+     * Verifies the password against the account's stored hash and loads the player. Standalone worlds register
+     * accounts on their first login.
+     */
+    @Override
+    public LoginResponse login(LoginCredentials credentials) {
+        Optional<Player> player = playerSaveService.load(credentials.username());
+        if (player.isEmpty()) {
+            String passwordHash = passwordService.hash(credentials.password());
+            return LoginResponse.ok(playerRepository.create(credentials.username(), passwordHash));
+        }
+        if (!passwordService.verify(credentials.username(), credentials.password(), player.get().getPasswordHash())) {
+            return LoginResponse.of(LoginResponseCodes.INVALID_CREDENTIALS);
+        }
+        return LoginResponse.ok(player.get());
     }
 }
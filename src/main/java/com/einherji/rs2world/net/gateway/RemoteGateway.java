@@ -0,0 +1,303 @@
+package com.einherji.rs2world.net.gateway;
+
+import com.einherji.rs2world.Rs2WorldProfiles;
+import com.einherji.rs2world.net.login.LoginCredentials;
+import com.einherji.rs2world.net.login.LoginResponse;
+import com.einherji.rs2world.net.login.LoginResponseCodes;
+import com.einherji.rs2world.net.util.Rs2Buffer;
+import com.einherji.rs2world.net.util.Rs2ReadBuffer;
+import com.einherji.rs2world.net.util.Rs2WriteBuffer;
+import com.einherji.rs2world.persistence.PlayerSnapshotCodec;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delegates gateway actions to a remote gateway server over one persistent connection. Requests are not sent one at a
+ * time: each is tagged with a correlation id and written as soon as it is made, so any amount of requests can be in
+ * flight at once and the server may answer them in any order.
+ * <p>
+ * A single I/O thread owns the connection. Callers hand their frames over through a queue and block on a future that
+ * the I/O thread completes once the response with the matching correlation id arrives. Frames are
+ * {@code [int length][int correlation id][byte opcode][payload]} on the way out and
+ * {@code [int length][int correlation id][payload]} on the way back, where the length counts everything after itself.
+ * <p>
+ * When the connection drops, every request in flight fails and the I/O thread keeps reconnecting in the background.
+ */
+@Component
+@Profile(Rs2WorldProfiles.REMOTE)
+public class RemoteGateway implements Gateway, Runnable, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemoteGateway.class);
+
+    public static final int LOGIN_OPCODE = 1;
+
+    private static final int MAX_FRAME_SIZE = 65536;
+    private static final int MAX_GATHERED_FRAMES = 64;
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final InetSocketAddress address;
+    private final long timeoutMillis;
+    private final Selector selector;
+    private final Queue<ByteBuffer> submittedFrames = new ConcurrentLinkedQueue<>();
+    private final Map<Integer, CompletableFuture<Rs2ReadBuffer>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger nextCorrelationId = new AtomicInteger();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    /*
+     * State owned by the I/O thread.
+     */
+    private final ArrayDeque<ByteBuffer> unwrittenFrames = new ArrayDeque<>();
+    private final ByteBuffer[] gatheredFrames = new ByteBuffer[MAX_GATHERED_FRAMES];
+    private final ByteBuffer inBuffer = ByteBuffer.allocateDirect(MAX_FRAME_SIZE * 2);
+    private SocketChannel channel;
+    private SelectionKey key;
+    private Thread thread;
+    private volatile boolean running = true;
+
+    public RemoteGateway(@Value("${rs2world.gateway.host:localhost}") String host,
+                         @Value("${rs2world.gateway.port:43595}") int port,
+                         @Value("${rs2world.gateway.timeout-millis:5000}") long timeoutMillis) {
+        this.address = new InetSocketAddress(host, port);
+        this.timeoutMillis = timeoutMillis;
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Starts the I/O thread, which connects to the gateway server and keeps the connection up until {@link #close()}.
+     */
+    @PostConstruct
+    public void start() {
+        thread = new Thread(this, "rs2-gateway");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Sends the credentials to the gateway server, which verifies them and hands back the player. Blocks the calling
+     * login until the response arrives, which never holds up other logins in flight.
+     */
+    @Override
+    public LoginResponse login(LoginCredentials credentials) {
+        Rs2WriteBuffer payload = Rs2Buffer.createWriteBuffer(ByteBuffer.allocate(128));
+        payload.writeString(credentials.username());
+        payload.writeString(credentials.password());
+        payload.writeInt(credentials.uid());
+        Rs2ReadBuffer response;
+        try {
+            response = request(LOGIN_OPCODE, payload.getBuffer().flip()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return LoginResponse.of(LoginResponseCodes.COULD_NOT_COMPLETE_LOGIN);
+        } catch (ExecutionException e) {
+            return LoginResponse.of(LoginResponseCodes.LOGIN_SERVER_OFFLINE);
+        }
+        byte responseCode = (byte) response.readByte();
+        if (responseCode != LoginResponseCodes.LOGIN_OK) {
+            return LoginResponse.of(responseCode);
+        }
+        return LoginResponse.ok(PlayerSnapshotCodec.decode(response).toPlayer());
+    }
+
+    /**
+     * Queues a request for the I/O thread. Safe to call from any thread.
+     *
+     * @param opcode  the kind of request
+     * @param payload the request body, flipped
+     * @return a future completed with the response body, or failed if the connection drops or the response does not
+     * arrive within the timeout
+     */
+    public CompletableFuture<Rs2ReadBuffer> request(int opcode, ByteBuffer payload) {
+        if (payload.remaining() + 5 > MAX_FRAME_SIZE) {
+            throw new IllegalArgumentException("Gateway request of " + payload.remaining() + " bytes is too large");
+        }
+        int correlationId = nextCorrelationId.incrementAndGet();
+        ByteBuffer frame = ByteBuffer.allocate(9 + payload.remaining());
+        frame.putInt(5 + payload.remaining()).putInt(correlationId).put((byte) opcode).put(payload).flip();
+        CompletableFuture<Rs2ReadBuffer> future = new CompletableFuture<Rs2ReadBuffer>()
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        future.whenComplete((response, failure) -> inFlight.remove(correlationId));
+        inFlight.put(correlationId, future);
+        if (!running) {
+            future.completeExceptionally(new IOException("Gateway is closed"));
+            return future;
+        }
+        submittedFrames.offer(frame);
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+        return future;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                if (channel == null) {
+                    connect();
+                    continue;
+                }
+                selector.select();
+                wakeupPending.set(false);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey selected = keys.next();
+                    keys.remove();
+                    if (selected.isValid() && selected.isReadable()) read();
+                }
+                write();
+            } catch (IOException e) {
+                if (running) LOGGER.error("Lost connection to gateway {}: ", address, e);
+                disconnect(e);
+            }
+        }
+        disconnect(new IOException("Gateway is closed"));
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            if (thread != null) thread.join(timeoutMillis);
+            selector.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            LOGGER.error("Encountered error while closing gateway selector: ", e);
+        }
+    }
+
+    /**
+     * @return the amount of requests waiting for a response
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private void connect() {
+        try {
+            SocketChannel connecting = SocketChannel.open();
+            try {
+                connecting.socket().connect(address, (int) timeoutMillis);
+                connecting.socket().setTcpNoDelay(true);
+                connecting.configureBlocking(false);
+                key = connecting.register(selector, SelectionKey.OP_READ);
+            } catch (IOException e) {
+                connecting.close();
+                throw e;
+            }
+            channel = connecting;
+            LOGGER.info("Connected to gateway {}", address);
+        } catch (IOException e) {
+            LOGGER.warn("Could not connect to gateway {}, retrying in {} ms", address, RECONNECT_DELAY_MILLIS);
+            submittedFrames.clear();
+            failAll(e);
+            try {
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+            } catch (InterruptedException interrupted) {
+                running = false;
+            }
+        }
+    }
+
+    /**
+     * Completes the future of every whole response in the inbound buffer and keeps a partial one for the next read.
+     */
+    private void read() throws IOException {
+        if (channel.read(inBuffer) == -1) {
+            throw new IOException("Gateway closed the connection");
+        }
+        inBuffer.flip();
+        while (inBuffer.remaining() >= 4) {
+            int length = inBuffer.getInt(inBuffer.position());
+            if (length < 4 || length > MAX_FRAME_SIZE) {
+                throw new IOException("Invalid gateway frame length " + length);
+            }
+            if (inBuffer.remaining() < 4 + length) break;
+            inBuffer.position(inBuffer.position() + 4);
+            int correlationId = inBuffer.getInt();
+            byte[] body = new byte[length - 4];
+            inBuffer.get(body);
+            CompletableFuture<Rs2ReadBuffer> future = inFlight.get(correlationId);
+            if (future != null) {
+                future.complete(Rs2Buffer.createReadBuffer(ByteBuffer.wrap(body)));
+            }
+        }
+        inBuffer.compact();
+    }
+
+    /**
+     * Writes the submitted frames with gathering writes, and waits for the channel to become writable if the socket
+     * buffer fills up.
+     */
+    private void write() throws IOException {
+        ByteBuffer frame;
+        while ((frame = submittedFrames.poll()) != null) {
+            unwrittenFrames.offer(frame);
+        }
+        while (!unwrittenFrames.isEmpty()) {
+            int count = 0;
+            for (ByteBuffer unwritten : unwrittenFrames) {
+                gatheredFrames[count++] = unwritten;
+                if (count == MAX_GATHERED_FRAMES) break;
+            }
+            channel.write(gatheredFrames, 0, count);
+            boolean socketFull = gatheredFrames[count - 1].hasRemaining();
+            Arrays.fill(gatheredFrames, 0, count, null);
+            while (!unwrittenFrames.isEmpty() && !unwrittenFrames.peek().hasRemaining()) {
+                unwrittenFrames.poll();
+            }
+            if (socketFull) break;
+        }
+        key.interestOps(unwrittenFrames.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    private void disconnect(IOException cause) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.error("Encountered error while closing gateway channel: ", e);
+            }
+            channel = null;
+            key = null;
+        }
+        inBuffer.clear();
+        unwrittenFrames.clear();
+        submittedFrames.clear();
+        failAll(cause);
+    }
+
+    private void failAll(IOException cause) {
+        for (CompletableFuture<Rs2ReadBuffer> future : inFlight.values()) {
+            future.completeExceptionally(cause);
+        }
+    }
+
+}
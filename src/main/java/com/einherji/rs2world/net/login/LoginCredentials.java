@@ -0,0 +1,26 @@
+package com.einherji.rs2world.net.login;
+
+/**
+ * The decoded content of a client's login block.
+ */
+public record LoginCredentials(boolean reconnecting,
+                               int clientVersion,
+                               boolean lowMemory,
+                               long clientSessionKey,
+                               long serverSessionKey,
+                               int uid,
+                               String username,
+                               String password) {
+
+    /**
+     * @return the seed both ISAAC ciphers of the session are derived from
+     */
+    public int[] isaacSeed() {
+        return new int[]{
+                (int) (clientSessionKey >> 32),
+                (int) clientSessionKey,
+                (int) (serverSessionKey >> 32),
+                (int) serverSessionKey
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package com.einherji.rs2world.net.login;
+
+import com.einherji.rs2world.net.util.Rs2Buffer;
+import com.einherji.rs2world.net.util.Rs2ReadBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Decodes the login block a client sends after the handshake. Runs on the login pipeline's threads, never on a reactor
+ * or the engine, so RSA decryption of concurrent logins is spread over all cores.
+ * <p>
+ * The secure part of the block is RSA encrypted with the key configured under {@code rs2world.login.rsa-key}, a PEM
+ * encoded PKCS#8 private key that is loaded once at startup. Without a configured key, the block is expected in
+ * plaintext, which only suits clients with RSA disabled.
+ */
+@Component
+public class LoginDecoder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoginDecoder.class);
+
+    private static final int LOGIN_TYPE_NEW = 16;
+    private static final int LOGIN_TYPE_RECONNECT = 18;
+    private static final int MAGIC = 255;
+    private static final int CLIENT_VERSION = 317;
+    private static final int BLOCK_OPCODE = 10;
+
+    private final RsaCrtKey rsaKey;
+
+    public LoginDecoder(@Value("${rs2world.login.rsa-key:}") String rsaKeyPath) {
+        if (rsaKeyPath.isBlank()) {
+            LOGGER.warn("No RSA key configured, login blocks are read in plaintext");
+            rsaKey = null;
+        } else {
+            rsaKey = RsaCrtKey.load(Path.of(rsaKeyPath));
+        }
+    }
+
+    /**
+     * @param loginType          the login type the block was sent with
+     * @param block              the login block, without the login type and length header
+     * @param expectedSessionKey the server session key the client was handed during the handshake
+     * @throws LoginException if the block is malformed or belongs to another session
+     */
+    public LoginCredentials decode(int loginType, byte[] block, long expectedSessionKey) {
+        if (loginType != LOGIN_TYPE_NEW && loginType != LOGIN_TYPE_RECONNECT) {
+            throw new LoginException(LoginResponseCodes.COULD_NOT_COMPLETE_LOGIN);
+        }
+        try {
+            Rs2ReadBuffer buffer = Rs2Buffer.createReadBuffer(ByteBuffer.wrap(block));
+            if (buffer.readByte(false) != MAGIC) {
+                throw new LoginException(LoginResponseCodes.COULD_NOT_COMPLETE_LOGIN);
+            }
+            int clientVersion = buffer.readShort(false);
+            if (clientVersion != CLIENT_VERSION) {
+                throw new LoginException(LoginResponseCodes.WORLD_UPDATED);
+            }
+            boolean lowMemory = buffer.readByte(false) == 1;
+            for (int i = 0; i < 9; i++) buffer.readInt(); //archive CRCs
+            byte[] secureBlock = new byte[buffer.readByte(false)];
+            buffer.getBuffer().get(secureBlock);
+            buffer = Rs2Buffer.createReadBuffer(ByteBuffer.wrap(rsaKey != null ? rsaKey.decrypt(secureBlock) : secureBlock));
+            if (buffer.readByte(false) != BLOCK_OPCODE) {
+                throw new LoginException(LoginResponseCodes.COULD_NOT_COMPLETE_LOGIN);
+            }
+            long clientSessionKey = buffer.readLong();
+            long serverSessionKey = buffer.readLong();
+            if (serverSessionKey != expectedSessionKey) {
+                throw new LoginException(LoginResponseCodes.BAD_SESSION_ID);
+            }
+            int uid = buffer.readInt();
+            String username = buffer.readString();
+            String password = buffer.readString();
+            return new LoginCredentials(loginType == LOGIN_TYPE_RECONNECT, clientVersion, lowMemory,
+                    clientSessionKey, serverSessionKey, uid, username, password);
+        } catch (BufferUnderflowException | NumberFormatException e) {
+            throw new LoginException(LoginResponseCodes.COULD_NOT_COMPLETE_LOGIN);
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.einherji.rs2world.net.login;
+
+import com.einherji.rs2world.player.Player;
+
+/**
+ * The outcome of a login request, as decided by the {@link com.einherji.rs2world.net.gateway.Gateway}.
+ *
+ * @param responseCode one of the {@link LoginResponseCodes}
+ * @param rights       the player's rights, only sent when the login succeeded
+ * @param flagged      whether the client should report its mouse movement, only sent when the login succeeded
+ * @param player       the loaded player, only present when the login succeeded
+ */
+public record LoginResponse(byte responseCode, int rights, boolean flagged, Player player) {
+
+    public static LoginResponse of(byte responseCode) {
+        return new LoginResponse(responseCode, 0, false, null);
+    }
+
+    public static LoginResponse ok(Player player) {
+        return new LoginResponse(LoginResponseCodes.LOGIN_OK, player.getRights(), false, player);
+    }
+
+    public boolean isSuccessful() {
+        return responseCode == LoginResponseCodes.LOGIN_OK;
+    }
+}
@@ -0,0 +1,165 @@
+package com.einherji.rs2world.net.login;
+
+import com.einherji.rs2world.net.clients.Client;
+import com.einherji.rs2world.net.clients.ClientStatus;
+import com.einherji.rs2world.net.gateway.Gateway;
+import com.einherji.rs2world.net.util.ISAACCipher;
+import com.einherji.rs2world.net.util.Rs2WriteBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * The login pipeline. Every login request runs on its own virtual thread, which decodes the login block and asks the
+ * {@link Gateway} to verify the credentials and load the player, however long that takes. Finished logins are posted
+ * back to the engine, which admits them at the start of its next tick, so the tick never waits on a login.
+ * <p>
+ * Admission is rate limited: at most a configured amount of logins enter the world per tick, and the rest wait in a
+ * FIFO queue with their connection kept open. When the engine's tick headroom drops below the configured minimum,
+ * admission pauses while successful logins keep queueing. Only a full waiting queue turns new logins away, with a
+ * request to try again while the engine is under pressure and with the login limit otherwise.
+ */
+@Component
+public class LoginService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoginService.class);
+
+    private static final int ISAAC_OUTBOUND_OFFSET = 50;
+
+    private final LoginDecoder loginDecoder;
+    private final Gateway gateway;
+    private final Executor pipeline;
+    private final Queue<CompletedLogin> completedLogins = new ConcurrentLinkedQueue<>();
+    /*
+     * Successful logins waiting for admission, owned by the engine thread.
+     */
+    private final ArrayDeque<CompletedLogin> waitingLogins = new ArrayDeque<>();
+    private final int loginsPerTick;
+    private final int maxWaitingLogins;
+    private final double minTickHeadroom;
+
+    @Autowired
+    public LoginService(LoginDecoder loginDecoder,
+                        Gateway gateway,
+                        @Value("${rs2world.login.logins-per-tick:25}") int loginsPerTick,
+                        @Value("${rs2world.login.max-waiting:512}") int maxWaitingLogins,
+                        @Value("${rs2world.login.min-tick-headroom:0.2}") double minTickHeadroom) {
+        this(loginDecoder,
+                gateway,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("rs2-login-", 0).factory()),
+                loginsPerTick,
+                maxWaitingLogins,
+                minTickHeadroom);
+    }
+
+    /**
+     * @param pipeline runs the login requests, one task per request
+     */
+    LoginService(LoginDecoder loginDecoder,
+                 Gateway gateway,
+                 Executor pipeline,
+                 int loginsPerTick,
+                 int maxWaitingLogins,
+                 double minTickHeadroom) {
+        this.loginDecoder = loginDecoder;
+        this.gateway = gateway;
+        this.pipeline = pipeline;
+        this.loginsPerTick = loginsPerTick;
+        this.maxWaitingLogins = maxWaitingLogins;
+        this.minTickHeadroom = minTickHeadroom;
+    }
+
+    /**
+     * Hands a login request to the pipeline. Safe to call from any thread.
+     *
+     * @param client    the client that sent the request
+     * @param loginType the login type the block was sent with
+     * @param block     the login block, without the login type and length header
+     */
+    public void submit(Client client, int loginType, byte[] block) {
+        long serverSessionKey = client.getServerSessionKey();
+        pipeline.execute(() -> completedLogins.offer(process(client, loginType, block, serverSessionKey)));
+    }
+
+    /**
+     * Collects the logins that completed since the last tick and admits the oldest waiting ones, up to the per-tick
+     * limit. Admitted clients get their ciphers and start sending game packets; failed and rejected logins receive
+     * their response code and are disconnected right away. While the tick headroom is below the minimum, successful
+     * logins still queue but nobody is admitted. Must be called from the engine thread.
+     *
+     * @param tickHeadroom the share of the tick duration the previous tick left unused
+     */
+    public void admitCompletedLogins(double tickHeadroom) {
+        boolean underPressure = tickHeadroom < minTickHeadroom;
+        CompletedLogin login;
+        while ((login = completedLogins.poll()) != null) {
+            if (!login.response().isSuccessful()) {
+                respond(login.client(), login.response(), null);
+            } else if (waitingLogins.size() < maxWaitingLogins) {
+                waitingLogins.addLast(login);
+            } else {
+                byte rejection = underPressure
+                        ? LoginResponseCodes.PLEASE_TRY_AGAIN
+                        : LoginResponseCodes.LOGIN_LIMIT_EXCEEDED;
+                respond(login.client(), LoginResponse.of(rejection), null);
+            }
+        }
+        if (underPressure) return;
+        int admitted = 0;
+        while (admitted < loginsPerTick && (login = waitingLogins.pollFirst()) != null) {
+            if (login.client().isDisconnected()) continue;
+            respond(login.client(), login.response(), login.credentials());
+            admitted++;
+        }
+    }
+
+    /**
+     * @return the amount of successful logins waiting for admission
+     */
+    public int getWaitingLoginCount() {
+        return waitingLogins.size();
+    }
+
+    private CompletedLogin process(Client client, int loginType, byte[] block, long serverSessionKey) {
+        try {
+            LoginCredentials credentials = loginDecoder.decode(loginType, block, serverSessionKey);
+            return new CompletedLogin(client, credentials, gateway.login(credentials));
+        } catch (LoginException le) {
+            return new CompletedLogin(client, null, LoginResponse.of(le.getResponseCode()));
+        } catch (RuntimeException e) {
+            LOGGER.error("Encountered error while processing login: ", e);
+            return new CompletedLogin(client, null, LoginResponse.of(LoginResponseCodes.COULD_NOT_COMPLETE_LOGIN));
+        }
+    }
+
+    private void respond(Client client, LoginResponse response, LoginCredentials credentials) {
+        if (client.isDisconnected()) return;
+        Rs2WriteBuffer out = client.getOutBuffer();
+        out.writeByte(response.responseCode());
+        if (!response.isSuccessful()) {
+            client.flushOutBuffer();
+            client.disconnect();
+            return;
+        }
+        out.writeByte(response.rights());
+        out.writeByte(response.flagged() ? 1 : 0);
+        int[] seed = credentials.isaacSeed();
+        client.setInCipher(new ISAACCipher(seed));
+        for (int i = 0; i < seed.length; i++) seed[i] += ISAAC_OUTBOUND_OFFSET;
+        client.setOutCipher(new ISAACCipher(seed));
+        client.setPlayer(response.player());
+        client.setStatus(ClientStatus.LOGGED_IN);
+    }
+
+    private record CompletedLogin(Client client, LoginCredentials credentials, LoginResponse response) {
+    }
+
+}
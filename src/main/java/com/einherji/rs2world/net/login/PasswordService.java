@@ -0,0 +1,192 @@
+package com.einherji.rs2world.net.login;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Salted PBKDF2 password hashing on a dedicated pool with one thread per core. Callers on the login pipeline block
+ * until their hash is done, but the pool itself never runs more hashes at once than there are cores, and at most a
+ * configured amount of hashes may wait for a thread. Anything beyond that is refused with
+ * {@link LoginResponseCodes#LOGIN_ATTEMPTS_EXCEEDED} instead of queueing up CPU work without bound.
+ * <p>
+ * Successful verifications are remembered for a short while, so a client that reconnects with the same password skips
+ * the slow hash. The cache holds keyed digests of the password and the stored hash, never the password itself, and a
+ * changed password invalidates it.
+ */
+@Component
+public class PasswordService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PasswordService.class);
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String SESSION_ALGORITHM = "HmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final int SALT_LENGTH = 16;
+    private static final int KEY_LENGTH = 256;
+    private static final int SESSION_CACHE_PURGE_SIZE = 4096;
+
+    private final int iterations;
+    private final long sessionTtlNanos;
+    private final ThreadPoolExecutor workers;
+    private final LongSupplier nanoTime;
+    private final Map<String, VerifiedSession> verifiedSessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final SecretKeySpec sessionKey;
+
+    @Autowired
+    public PasswordService(@Value("${rs2world.login.hash-iterations:310000}") int iterations,
+                           @Value("${rs2world.login.hash-queue-limit:64}") int queueLimit,
+                           @Value("${rs2world.login.session-cache-seconds:300}") long sessionCacheSeconds) {
+        this(iterations, sessionCacheSeconds, createWorkers(queueLimit), System::nanoTime);
+    }
+
+    /**
+     * @param workers  the pool the hashes run on
+     * @param nanoTime the clock session cache entries expire by
+     */
+    PasswordService(int iterations, long sessionCacheSeconds, ThreadPoolExecutor workers, LongSupplier nanoTime) {
+        this.iterations = iterations;
+        this.sessionTtlNanos = TimeUnit.SECONDS.toNanos(sessionCacheSeconds);
+        this.workers = workers;
+        this.nanoTime = nanoTime;
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        this.sessionKey = new SecretKeySpec(key, SESSION_ALGORITHM);
+    }
+
+    /**
+     * Hashes a password with a fresh salt.
+     *
+     * @return the encoded hash, which carries its own algorithm, iteration count and salt
+     * @throws LoginException if too many hashes are already waiting
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        byte[] hash = submit(() -> derive(password, salt, iterations));
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Checks a password against a hash produced by {@link #hash(String)}. A stored hash that cannot be parsed never
+     * matches.
+     *
+     * @throws LoginException if too many hashes are already waiting
+     */
+    public boolean verify(String username, String password, String storedHash) {
+        String key = username.toLowerCase(Locale.ROOT);
+        byte[] digest = sessionDigest(password, storedHash);
+        VerifiedSession session = verifiedSessions.get(key);
+        if (session != null) {
+            if (nanoTime.getAsLong() - session.expiresAt() < 0) {
+                if (MessageDigest.isEqual(session.digest(), digest)) return true;
+            } else {
+                verifiedSessions.remove(key, session);
+            }
+        }
+        String[] parts = storedHash.split("\\$");
+        if (parts.length != 4 || !parts[0].equals(PREFIX)) return false;
+        int storedIterations;
+        byte[] salt;
+        byte[] expected;
+        try {
+            storedIterations = Integer.parseInt(parts[1]);
+            salt = Base64.getDecoder().decode(parts[2]);
+            expected = Base64.getDecoder().decode(parts[3]);
+            if (storedIterations < 1 || salt.length == 0) {
+                throw new IllegalArgumentException("Hash without iterations or salt");
+            }
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Rejecting login of {} against a corrupt password hash", username);
+            return false;
+        }
+        boolean matches = MessageDigest.isEqual(expected, submit(() -> derive(password, salt, storedIterations)));
+        if (matches) {
+            if (verifiedSessions.size() >= SESSION_CACHE_PURGE_SIZE) {
+                long now = nanoTime.getAsLong();
+                verifiedSessions.values().removeIf(s -> now - s.expiresAt() >= 0);
+            }
+            verifiedSessions.put(key, new VerifiedSession(digest, nanoTime.getAsLong() + sessionTtlNanos));
+        }
+        return matches;
+    }
+
+    private static ThreadPoolExecutor createWorkers(int queueLimit) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueLimit), task -> {
+            Thread thread = new Thread(task, "rs2-hash-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = workers.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new LoginException(LoginResponseCodes.LOGIN_ATTEMPTS_EXCEEDED);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoginException(LoginResponseCodes.COULD_NOT_COMPLETE_LOGIN);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) throws GeneralSecurityException {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_LENGTH);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private byte[] sessionDigest(String password, String storedHash) {
+        try {
+            Mac mac = Mac.getInstance(SESSION_ALGORITHM);
+            mac.init(sessionKey);
+            mac.update(storedHash.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private record VerifiedSession(byte[] digest, long expiresAt) {
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.einherji.rs2world.net.login;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Base64;
+
+/**
+ * An RSA private key in Chinese remainder theorem form. Decrypting with the two half-size primes instead of the full
+ * modulus is about four times faster than a single modPow with the private exponent. Instances are immutable and safe
+ * to share between threads.
+ */
+public final class RsaCrtKey {
+
+    private final BigInteger modulus;
+    private final BigInteger primeP;
+    private final BigInteger primeQ;
+    private final BigInteger exponentP;
+    private final BigInteger exponentQ;
+    private final BigInteger coefficient;
+
+    public RsaCrtKey(RSAPrivateCrtKey key) {
+        this.modulus = key.getModulus();
+        this.primeP = key.getPrimeP();
+        this.primeQ = key.getPrimeQ();
+        this.exponentP = key.getPrimeExponentP();
+        this.exponentQ = key.getPrimeExponentQ();
+        this.coefficient = key.getCrtCoefficient();
+    }
+
+    /**
+     * Loads a PEM encoded PKCS#8 RSA private key.
+     */
+    public static RsaCrtKey load(Path path) {
+        try {
+            String pem = Files.readString(path)
+                    .replaceAll("-----(BEGIN|END) PRIVATE KEY-----", "")
+                    .replaceAll("\\s", "");
+            PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(Base64.getDecoder().decode(pem));
+            return new RsaCrtKey((RSAPrivateCrtKey) KeyFactory.getInstance("RSA").generatePrivate(spec));
+        } catch (IOException | GeneralSecurityException | ClassCastException e) {
+            throw new RuntimeException("Could not load RSA key from " + path, e);
+        }
+    }
+
+    /**
+     * Decrypts a block the way the client encrypts it: a signed big-endian number raised to the private exponent.
+     */
+    public byte[] decrypt(byte[] block) {
+        BigInteger c = new BigInteger(block);
+        BigInteger m1 = c.modPow(exponentP, primeP);
+        BigInteger m2 = c.modPow(exponentQ, primeQ);
+        BigInteger h = coefficient.multiply(m1.subtract(m2)).mod(primeP);
+        return m2.add(h.multiply(primeQ)).toByteArray();
+    }
+
+    public BigInteger getModulus() {
+        return modulus;
+    }
+
+}
@@ -6,4 +6,16 @@ public interface Packet {
 
     void execute(Client client, PacketContext ctx);
 
+    /**
+     * Whether executing this packet only touches the state of its own client and player. Such packets may be executed
+     * on a pool thread, in parallel with the packets of other clients.
+     * <p>
+     * Player-local packets are also executed ahead of every shared packet of the same tick, including shared packets
+     * the client sent before them. Only packets that do not depend on the effects of earlier shared packets may be
+     * marked as player-local.
+     */
+    default boolean isPlayerLocal() {
+        return false;
+    }
+
 }
@@ -1,7 +1,7 @@
 package com.einherji.rs2world.net.packets;
 
-import com.einherji.rs2world.net.gateway.Gateway;
-import com.einherji.rs2world.net.packets.impl.LoginPacketBuilder;
+import com.einherji.rs2world.net.clients.Client;
+import com.einherji.rs2world.net.login.LoginService;
 import com.einherji.rs2world.net.packets.impl.LoginPacketBuilder.LoginPacket;
 import org.springframework.stereotype.Component;
 
@@ -10,18 +10,18 @@ import java.security.SecureRandom;
 @Component
 public class PacketContext {
 
-    private final Gateway gateway;
+    private final LoginService loginService;
     private final SecureRandom randomGenerator = new SecureRandom();
 
-    public PacketContext(Gateway gateway) {
-        this.gateway = gateway;
+    public PacketContext(LoginService loginService) {
+        this.loginService = loginService;
     }
 
     public long generateServerSessionKey() {
         return randomGenerator.nextLong();
     }
 
-    public void registerLoginRequest(LoginPacket loginPacket) {
-        gateway.registerLoginRequest(loginPacket);
+    public void submitLogin(Client client, LoginPacket loginPacket) {
+        loginService.submit(client, loginPacket.loginType(), loginPacket.block());
     }
 }
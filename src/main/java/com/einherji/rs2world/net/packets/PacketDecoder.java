@@ -1,23 +1,132 @@
 package com.einherji.rs2world.net.packets;
 
-import com.einherji.rs2world.net.clients.ClientStatus;
+import com.einherji.rs2world.net.clients.Client;
 import com.einherji.rs2world.net.packets.impl.ConnectionPacketBuilder;
+import com.einherji.rs2world.net.packets.impl.FocusChangePacketBuilder;
 import com.einherji.rs2world.net.packets.impl.LoginPacketBuilder;
+import com.einherji.rs2world.net.util.ISAACCipher;
 import com.einherji.rs2world.net.util.Rs2ReadBuffer;
-import org.springframework.stereotype.Component;
 
-@Component
+import java.nio.ByteBuffer;
+
+/**
+ * Frames inbound bytes into packets. Every reactor owns its own decoder, so the builders and the packet pools they
+ * draw from are confined to that reactor's thread.
+ */
 public class PacketDecoder {
 
+    /**
+     * The size of a frame whose length is sent as a byte after the opcode.
+     */
+    public static final int VAR_BYTE = -1;
+    /**
+     * The size of a frame whose length is sent as a short after the opcode.
+     */
+    public static final int VAR_SHORT = -2;
+
+    /**
+     * The payload sizes of the packets a 317 client sends, indexed by opcode.
+     */
+    private static final int[] PACKET_SIZES = {
+            0, 0, 0, 1, -1, 0, 0, 0, 0, 0, // 0
+            0, 0, 0, 0, 8, 0, 6, 2, 2, 0, // 10
+            0, 2, 0, 6, 0, 12, 0, 0, 0, 0, // 20
+            0, 0, 0, 0, 0, 8, 4, 0, 0, 2, // 30
+            2, 6, 0, 6, 0, -1, 0, 0, 0, 0, // 40
+            0, 0, 0, 12, 0, 0, 0, 8, 8, 12, // 50
+            8, 8, 0, 0, 0, 0, 0, 0, 0, 0, // 60
+            6, 0, 2, 2, 8, 6, 0, -1, 0, 6, // 70
+            0, 0, 0, 0, 0, 1, 4, 6, 0, 0, // 80
+            0, 0, 0, 0, 0, 3, 0, 0, -1, 0, // 90
+            0, 13, 0, -1, 0, 0, 0, 0, 0, 0, // 100
+            0, 0, 0, 0, 0, 0, 0, 6, 0, 0, // 110
+            1, 0, 6, 0, 0, 0, -1, 0, 2, 6, // 120
+            0, 4, 6, 8, 0, 6, 0, 0, 0, 2, // 130
+            0, 0, 0, 0, 0, 6, 0, 0, 0, 0, // 140
+            0, 0, 1, 2, 0, 2, 6, 0, 0, 0, // 150
+            0, 0, 0, 0, -1, -1, 0, 0, 0, 0, // 160
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, // 170
+            0, 8, 0, 3, 0, 2, 0, 0, 8, 1, // 180
+            0, 0, 12, 0, 0, 0, 0, 0, 0, 0, // 190
+            2, 0, 0, 0, 0, 0, 0, 0, 4, 0, // 200
+            4, 0, 0, 0, 7, 8, 0, 0, 10, 0, // 210
+            0, 0, 0, 0, 0, 0, -1, 0, 6, 0, // 220
+            1, 0, 0, 0, 6, 0, 6, 8, 1, 0, // 230
+            0, 4, 0, 0, 0, 0, -1, 0, -1, 4, // 240
+            0, 0, 6, 6, 0, 0 // 250
+    };
+
+    private final int[] packetSizes;
     private final ConnectionPacketBuilder connectionPacketBuilder = new ConnectionPacketBuilder();
     private final LoginPacketBuilder loginPacketBuilder = new LoginPacketBuilder();
+    private final PacketBuilder[] gamePacketBuilders = new PacketBuilder[256];
+
+    public PacketDecoder() {
+        this(PACKET_SIZES);
+    }
 
-    public Packet decode(ClientStatus status, Rs2ReadBuffer buffer) {
-        return switch (status) {
+    /**
+     * @param packetSizes the payload sizes of the game packets, indexed by opcode
+     */
+    PacketDecoder(int[] packetSizes) {
+        this.packetSizes = packetSizes;
+        gamePacketBuilders[FocusChangePacketBuilder.OPCODE] = new FocusChangePacketBuilder();
+    }
+
+    public Packet decode(Client client, Rs2ReadBuffer buffer) {
+        return switch (client.getStatus()) {
             case CONNECTED -> connectionPacketBuilder.build(buffer);
             case LOGGING_IN -> loginPacketBuilder.build(buffer);
-            case LOGGED_IN -> null;
+            case LOGGED_IN -> decodeGamePacket(client, buffer);
         };
     }
 
+    /**
+     * Frames the next game packet and dispatches it to the builder registered for its opcode. The opcode is decrypted
+     * with the client's inbound cipher exactly once, so a frame that is split across reads keeps its opcode and length
+     * on the client until the rest of it arrives. Builders only see their own payload; frames without a builder are
+     * skipped.
+     *
+     * @return the next packet, or null once the buffer holds no further complete frame
+     */
+    private Packet decodeGamePacket(Client client, Rs2ReadBuffer buffer) {
+        ByteBuffer bytes = buffer.getBuffer();
+        while (true) {
+            int opcode = client.getPendingOpcode();
+            int length = client.getPendingLength();
+            if (opcode == -1) {
+                if (!bytes.hasRemaining()) return null;
+                opcode = buffer.readByte(false);
+                ISAACCipher cipher = client.getInCipher();
+                if (cipher != null) opcode = (opcode - cipher.getNextValue()) & 0xff;
+                length = packetSizes[opcode];
+                client.setPendingOpcode(opcode);
+                client.setPendingLength(length);
+            }
+            if (length == VAR_BYTE) {
+                if (bytes.remaining() < 1) return null;
+                length = buffer.readByte(false);
+            } else if (length == VAR_SHORT) {
+                if (bytes.remaining() < 2) return null;
+                length = buffer.readShort(false);
+            }
+            client.setPendingLength(length);
+            if (bytes.remaining() < length) return null;
+
+            client.setPendingOpcode(-1);
+            client.setPendingLength(-1);
+            PacketBuilder builder = gamePacketBuilders[opcode];
+            int end = bytes.position() + length;
+            if (builder == null) {
+                bytes.position(end);
+                continue;
+            }
+            int limit = bytes.limit();
+            bytes.limit(end);
+            Packet packet = builder.build(buffer);
+            bytes.limit(limit).position(end);
+            if (packet != null) return packet;
+        }
+    }
+
 }
@@ -0,0 +1,46 @@
+package com.einherji.rs2world.net.packets;
+
+import com.einherji.rs2world.util.MpscArrayQueue;
+
+import java.util.function.Function;
+
+/**
+ * A bounded free list of {@link PooledPacket}s of a single type. Packets are acquired by the reactor that decodes them
+ * and released by the engine after execution, so the free list is a lock-free queue with the reactor as its only
+ * consumer. Once the pool is warm, decoding allocates nothing; packets released while the pool is full are left to
+ * the garbage collector.
+ */
+public final class PacketPool<P extends PooledPacket> {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final MpscArrayQueue<PooledPacket> free;
+    private final Function<PacketPool<P>, P> factory;
+
+    public PacketPool(Function<PacketPool<P>, P> factory) {
+        this(DEFAULT_CAPACITY, factory);
+    }
+
+    /**
+     * @param capacity the maximum amount of idle packets kept around
+     * @param factory  creates a new packet owned by the given pool when no idle packet is available
+     */
+    public PacketPool(int capacity, Function<PacketPool<P>, P> factory) {
+        this.free = new MpscArrayQueue<>(capacity);
+        this.factory = factory;
+    }
+
+    /**
+     * Must only be called from the thread that owns this pool.
+     */
+    @SuppressWarnings("unchecked")
+    public P acquire() {
+        PooledPacket packet = free.poll();
+        return packet != null ? (P) packet : factory.apply(this);
+    }
+
+    void release(PooledPacket packet) {
+        free.offer(packet);
+    }
+
+}
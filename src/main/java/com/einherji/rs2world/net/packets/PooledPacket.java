@@ -0,0 +1,30 @@
+package com.einherji.rs2world.net.packets;
+
+/**
+ * A packet that is reused instead of allocated for every frame. Builders take instances from a {@link PacketPool} and
+ * fill in the decoded fields, and the engine recycles them once they have been executed. Implementations must not be
+ * referenced after {@link #recycle()}.
+ */
+public abstract class PooledPacket implements Packet {
+
+    private final PacketPool<?> pool;
+
+    protected PooledPacket(PacketPool<?> pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Clears the decoded fields and hands this packet back to the pool it was taken from.
+     */
+    public final void recycle() {
+        reset();
+        pool.release(this);
+    }
+
+    /**
+     * Clears any references the decoded fields hold on to. Primitive fields are overwritten by the next decode anyway.
+     */
+    protected void reset() {
+    }
+
+}
@@ -13,6 +13,7 @@ public class ConnectionPacketBuilder implements PacketBuilder {
     public Packet build(Rs2ReadBuffer buffer) {
         if (buffer.getBuffer().remaining() < 2) return null;
         int requestType = buffer.readByte(false);
+        buffer.readByte(false); //name hash
         return new ConnectionPacket(requestType);
     }
 
@@ -22,12 +23,14 @@ public class ConnectionPacketBuilder implements PacketBuilder {
         public void execute(Client client, PacketContext ctx) {
 
             if (requestType != 14) {
-                //TODO: properly terminate client
+                client.disconnect();
+                return;
             }
             client.getOutBuffer().writeLong(0L);
             client.getOutBuffer().writeByte(0);
-            client.getOutBuffer().writeLong(ctx.generateServerSessionKey());
-            client.flushOutBuffer();
+            long serverSessionKey = ctx.generateServerSessionKey();
+            client.setServerSessionKey(serverSessionKey);
+            client.getOutBuffer().writeLong(serverSessionKey);
             client.setStatus(ClientStatus.LOGGING_IN);
         }
     }
@@ -0,0 +1,41 @@
+package com.einherji.rs2world.net.packets.impl;
+
+import com.einherji.rs2world.net.clients.Client;
+import com.einherji.rs2world.net.packets.PacketBuilder;
+import com.einherji.rs2world.net.packets.PacketContext;
+import com.einherji.rs2world.net.packets.PacketPool;
+import com.einherji.rs2world.net.packets.PooledPacket;
+import com.einherji.rs2world.net.util.Rs2ReadBuffer;
+
+public class FocusChangePacketBuilder implements PacketBuilder {
+
+    public static final int OPCODE = 3;
+
+    private final PacketPool<FocusChangePacket> pool = new PacketPool<>(FocusChangePacket::new);
+
+    @Override
+    public FocusChangePacket build(Rs2ReadBuffer buffer) {
+        FocusChangePacket packet = pool.acquire();
+        packet.focused = buffer.readByte(false) == 1;
+        return packet;
+    }
+
+    static final class FocusChangePacket extends PooledPacket {
+
+        private boolean focused;
+
+        FocusChangePacket(PacketPool<?> pool) {
+            super(pool);
+        }
+
+        @Override
+        public void execute(Client client, PacketContext ctx) {
+            client.setFocused(focused);
+        }
+
+        @Override
+        public boolean isPlayerLocal() {
+            return true;
+        }
+    }
+}
@@ -6,6 +6,9 @@ import com.einherji.rs2world.net.packets.PacketBuilder;
 import com.einherji.rs2world.net.packets.PacketContext;
 import com.einherji.rs2world.net.util.Rs2ReadBuffer;
 
+/**
+ * Frames the login block. The block itself is decoded by the login pipeline, away from the reactor.
+ */
 public class LoginPacketBuilder implements PacketBuilder {
 
     @Override
@@ -13,41 +16,23 @@ public class LoginPacketBuilder implements PacketBuilder {
         if (buffer.getBuffer().remaining() < 2) {
             return null;
         }
-        int loginType = buffer.readByte(); //16 or 18
+        int start = buffer.getBuffer().position();
+        int loginType = buffer.readByte(false); //16 or 18
         int packetLength = buffer.readByte(false);
         if (buffer.getBuffer().remaining() < packetLength) {
+            buffer.getBuffer().position(start);
             return null;
         }
-        buffer.readByte();
-        int clientVersion = buffer.readShort();
-        buffer.readByte();
-        for (int i = 0; i < 9; i++) buffer.readInt();
-        buffer.readByte();
-        buffer.readByte();
-        long clientSessionKey = buffer.readLong();
-        long serverSessionKey = buffer.readLong();
-        String username = buffer.readString();
-        String password = buffer.readString();
-        return new LoginPacket(loginType, clientVersion, clientSessionKey, serverSessionKey, username, password);
+        byte[] block = new byte[packetLength];
+        buffer.getBuffer().get(block);
+        return new LoginPacket(loginType, block);
     }
 
-    public record LoginPacket(int loginType,
-                              int clientVersion,
-                              long clientSessionKey,
-                              long serverSessionKey,
-                              String username,
-                              String password)
-            implements Packet, Runnable {
+    public record LoginPacket(int loginType, byte[] block) implements Packet {
 
         @Override
         public void execute(Client client, PacketContext ctx) {
-            ctx.registerLoginRequest(this);
-
-        }
-
-        @Override
-        public void run() {
-
+            ctx.submitLogin(client, this);
         }
     }
 }
@@ -0,0 +1,119 @@
+package com.einherji.rs2world.net.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A thread safe slab allocator for direct buffers. Buffer sizes are rounded up to power-of-two size classes between a
+ * minimum and maximum size. Each size class carves its buffers out of large direct slabs and keeps released buffers
+ * on a free list, so connection churn neither allocates nor frees off-heap memory once the pool is warm, and socket
+ * writes from these buffers never go through the JDK's temporary direct buffer copy.
+ * <p>
+ * Requests above the largest size class are served by plain direct buffers, which are left to the garbage collector
+ * once released.
+ */
+public final class DirectBufferPool {
+
+    private final int minSize;
+    private final int maxSize;
+    private final int slabSize;
+    private final SizeClass[] sizeClasses;
+
+    /**
+     * @param minSize  the smallest size class, a power of two
+     * @param maxSize  the largest size class, a power of two
+     * @param slabSize the size of the slabs buffers are carved from
+     */
+    public DirectBufferPool(int minSize, int maxSize, int slabSize) {
+        if (Integer.bitCount(minSize) != 1 || Integer.bitCount(maxSize) != 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Size classes must be powers of two with minSize <= maxSize.");
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.slabSize = slabSize;
+        int classes = Integer.numberOfTrailingZeros(maxSize) - Integer.numberOfTrailingZeros(minSize) + 1;
+        sizeClasses = new SizeClass[classes];
+        for (int i = 0; i < classes; i++) {
+            sizeClasses[i] = new SizeClass(minSize << i);
+        }
+    }
+
+    /**
+     * @return a cleared buffer of the smallest size class
+     */
+    public ByteBuffer acquire() {
+        return acquire(minSize);
+    }
+
+    /**
+     * @return a cleared buffer of the smallest size class that holds at least the given amount of bytes
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        if (minCapacity > maxSize) {
+            return ByteBuffer.allocateDirect(minCapacity);
+        }
+        return sizeClasses[indexOf(minCapacity)].acquire();
+    }
+
+    /**
+     * Hands a buffer back to its size class. Buffers whose capacity does not match a size class are left to the
+     * garbage collector.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) return;
+        int capacity = buffer.capacity();
+        if (capacity < minSize || capacity > maxSize || Integer.bitCount(capacity) != 1) return;
+        sizeClasses[indexOf(capacity)].release(buffer);
+    }
+
+    /**
+     * Moves the content of a buffer in write mode into a buffer of the next size class that holds at least the given
+     * amount of bytes, and releases the old storage.
+     */
+    public void grow(Rs2Buffer buffer, int minCapacity) {
+        ByteBuffer old = buffer.getBuffer();
+        ByteBuffer grown = acquire(minCapacity);
+        old.flip();
+        grown.put(old);
+        buffer.setBuffer(grown);
+        release(old);
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    private int indexOf(int capacity) {
+        int rounded = capacity <= minSize ? minSize : Integer.highestOneBit(capacity - 1) << 1;
+        return Integer.numberOfTrailingZeros(rounded) - Integer.numberOfTrailingZeros(minSize);
+    }
+
+    private final class SizeClass {
+
+        private final int bufferSize;
+        private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+        private ByteBuffer slab;
+
+        SizeClass(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        synchronized ByteBuffer acquire() {
+            ByteBuffer buffer = free.pollFirst();
+            if (buffer != null) {
+                return buffer.clear();
+            }
+            if (slab == null || slab.remaining() < bufferSize) {
+                slab = ByteBuffer.allocateDirect(Math.max(slabSize, bufferSize));
+            }
+            buffer = slab.slice(slab.position(), bufferSize);
+            slab.position(slab.position() + bufferSize);
+            return buffer;
+        }
+
+        synchronized void release(ByteBuffer buffer) {
+            free.offerFirst(buffer.clear());
+        }
+    }
+
+}
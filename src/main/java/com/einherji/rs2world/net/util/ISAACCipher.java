@@ -1,5 +1,7 @@
 package com.einherji.rs2world.net.util;
 
+import java.nio.ByteBuffer;
+
 /**
  * <p>
  * An implementation of an ISAAC cipher. See <a href="http://en.wikipedia.org/wiki/ISAAC_(cipher)">
@@ -88,6 +90,71 @@ public final class ISAACCipher {
         return results[count];
     }
 
+    /**
+     * Fills the array with the next values, in the same order as repeated calls to {@link #getNextValue()}.
+     *
+     * @param values The array to fill.
+     * @param offset The index of the first value to fill.
+     * @param length The amount of values to fill.
+     */
+    public void getNextValues(int[] values, int offset, int length) {
+        int end = offset + length;
+        while (offset < end) {
+            if (count == 0) {
+                isaac();
+                count = SIZE;
+            }
+            int chunk = Math.min(count, end - offset);
+            for (int i = 0; i < chunk; i++) {
+                values[offset++] = results[--count];
+            }
+        }
+    }
+
+    /**
+     * Fills the array with the low byte of each of the next values, which is all an opcode uses of them.
+     *
+     * @param values The array to fill.
+     * @param offset The index of the first value to fill.
+     * @param length The amount of values to fill.
+     */
+    public void getNextValues(byte[] values, int offset, int length) {
+        int end = offset + length;
+        while (offset < end) {
+            if (count == 0) {
+                isaac();
+                count = SIZE;
+            }
+            int chunk = Math.min(count, end - offset);
+            for (int i = 0; i < chunk; i++) {
+                values[offset++] = (byte) results[--count];
+            }
+        }
+    }
+
+    /**
+     * Encrypts the opcodes of a finished frame in place, consuming one value per opcode in the order the positions
+     * are given.
+     *
+     * @param frame     The frame holding the opcodes.
+     * @param positions The absolute positions of the opcodes in the frame.
+     * @param length    The amount of positions to encrypt.
+     */
+    public void encryptOpcodes(ByteBuffer frame, int[] positions, int length) {
+        int p = 0;
+        while (p < length) {
+            if (count == 0) {
+                isaac();
+                count = SIZE;
+            }
+            int chunk = Math.min(count, length - p);
+            for (int i = 0; i < chunk; i++) {
+                int position = positions[p++];
+                frame.put(position, (byte) (frame.get(position) + results[--count]));
+            }
+        }
+    }
+
     /**
      * Generates 256 results.
      */
@@ -63,7 +63,15 @@ public abstract class Rs2Buffer {
     }
 
     public static Rs2WriteBuffer createWriteBuffer(ByteBuffer buffer) {
-        return new Rs2WriteBuffer(buffer);
+        return new Rs2WriteBuffer(buffer, null);
+    }
+
+    /**
+     * Creates a write buffer backed by a buffer leased from the pool. When the buffer runs out of space, it moves
+     * into the pool's next size class.
+     */
+    public static Rs2WriteBuffer createWriteBuffer(DirectBufferPool pool) {
+        return new Rs2WriteBuffer(pool.acquire(), pool);
     }
 
     /**
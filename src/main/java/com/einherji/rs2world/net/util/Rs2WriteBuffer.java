@@ -1,6 +1,7 @@
 package com.einherji.rs2world.net.util;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 public final class Rs2WriteBuffer extends Rs2Buffer {
 
@@ -9,8 +10,20 @@ public final class Rs2WriteBuffer extends Rs2Buffer {
      */
     private int lengthPosition = 0;
 
-    Rs2WriteBuffer(ByteBuffer buffer) {
+    /**
+     * The pool the backing buffer was leased from, or null for a plain heap buffer.
+     */
+    private final DirectBufferPool pool;
+
+    /**
+     * The positions of the opcodes written with {@link #writeHeader(int)} that still have to be encrypted.
+     */
+    private int[] opcodePositions = new int[16];
+    private int opcodeCount;
+
+    Rs2WriteBuffer(ByteBuffer buffer, DirectBufferPool pool) {
         super(buffer);
+        this.pool = pool;
     }
 
     @Override
@@ -35,6 +48,59 @@ public final class Rs2WriteBuffer extends Rs2Buffer {
         writeByte(value + cipher.getNextValue());
     }
 
+    /**
+     * Writes a plain packet header and remembers its position, so that all
+     * opcodes of the frame can be encrypted at once with
+     * {@link #encryptOpcodes(ISAACCipher)} once the frame is finished. Do not
+     * mix this with the headers that take a cipher within one frame, as the
+     * opcodes would be encrypted out of order.
+     *
+     * @param value the value
+     */
+    public void writeHeader(int value) {
+        if (opcodeCount == opcodePositions.length) {
+            opcodePositions = Arrays.copyOf(opcodePositions, opcodeCount * 2);
+        }
+        opcodePositions[opcodeCount++] = getBuffer().position();
+        writeByte(value);
+    }
+
+    /**
+     * Writes a plain packet header for a variable length packet, to be
+     * encrypted with {@link #encryptOpcodes(ISAACCipher)}.
+     *
+     * @param value the value
+     */
+    public void writeVariableHeader(int value) {
+        writeHeader(value);
+        lengthPosition = getBuffer().position();
+        writeByte(0);
+    }
+
+    /**
+     * Writes a plain packet header for a variable length packet with a short
+     * length, to be encrypted with {@link #encryptOpcodes(ISAACCipher)}.
+     *
+     * @param value the value
+     */
+    public void writeVariableShortHeader(int value) {
+        writeHeader(value);
+        lengthPosition = getBuffer().position();
+        writeShort(0);
+    }
+
+    /**
+     * Encrypts every opcode written with the plain headers since the last
+     * call in one pass over the cipher's keystream.
+     *
+     * @param cipher the encryptor
+     */
+    public void encryptOpcodes(ISAACCipher cipher) {
+        if (opcodeCount == 0) return;
+        cipher.encryptOpcodes(getBuffer(), opcodePositions, opcodeCount);
+        opcodeCount = 0;
+    }
+
     /**
      * Writes a packet header for a variable length packet. Note that the
      * corresponding "finishVariablePacketHeader" must be called to finish
@@ -122,14 +188,7 @@ public final class Rs2WriteBuffer extends Rs2Buffer {
         setBitPosition(getBitPosition() + amount);
 
         // Re-size the buffer if need be.
-        int requiredSpace = bytePos - getBuffer().position() + 1;
-        requiredSpace += (amount + 7) / 8;
-        if (getBuffer().remaining() < requiredSpace) {
-            ByteBuffer old = getBuffer();
-            setBuffer(ByteBuffer.allocate(old.capacity() + requiredSpace));
-            old.flip();
-            getBuffer().put(old);
-        }
+        ensureCapacity(bytePos + 1 + (amount + 7) / 8);
 
         for (; amount > bitOffset; bitOffset = 8) {
             byte tmp = getBuffer().get(bytePos);
@@ -170,6 +229,9 @@ public final class Rs2WriteBuffer extends Rs2Buffer {
         if (getAccessType() != AccessType.BYTE_ACCESS) {
             throw new IllegalStateException("Illegal access type.");
         }
+        if (!getBuffer().hasRemaining()) {
+            ensureCapacity(getBuffer().capacity() + 1);
+        }
         switch (type) {
             case A:
                 value += 128;
@@ -388,4 +450,40 @@ public final class Rs2WriteBuffer extends Rs2Buffer {
         writeByte(10);
     }
 
-}
\ No newline at end of file
+    /**
+     * Detaches everything written so far as a frame that is flipped and ready to be written to a channel, and
+     * continues on fresh storage. For pooled buffers the frame still belongs to the pool and has to be released once
+     * it has been written.
+     *
+     * @return the detached frame
+     */
+    public ByteBuffer detach() {
+        ByteBuffer frame = getBuffer();
+        frame.flip();
+        opcodeCount = 0;
+        setBuffer(pool != null ? pool.acquire() : ByteBuffer.allocate(frame.capacity()));
+        return frame;
+    }
+
+    /**
+     * Makes sure the backing buffer can hold at least the given amount of bytes. Pooled buffers move into the next
+     * size class that fits, heap buffers at least double in size. The whole content is carried over, which includes
+     * bits that were written past the byte position in bit access mode.
+     *
+     * @param capacity the required capacity
+     */
+    private void ensureCapacity(int capacity) {
+        ByteBuffer old = getBuffer();
+        if (old.capacity() >= capacity) return;
+        ByteBuffer grown = pool != null
+                ? pool.acquire(capacity)
+                : ByteBuffer.allocate(Math.max(capacity, old.capacity() * 2));
+        int position = old.position();
+        old.clear();
+        grown.put(old);
+        grown.position(position);
+        setBuffer(grown);
+        if (pool != null) pool.release(old);
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.einherji.rs2world.persistence;
+
+import com.einherji.rs2world.player.Player;
+import com.einherji.rs2world.player.PlayerSnapshot;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps players in memory only. Meant for tests and throwaway worlds; nothing survives a restart.
+ */
+public class InMemoryPlayerRepository implements PlayerRepository {
+
+    private final Map<String, PlayerSnapshot> players = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    @Override
+    public Optional<Player> load(String username) {
+        return Optional.ofNullable(players.get(key(username))).map(PlayerSnapshot::toPlayer);
+    }
+
+    @Override
+    public Player create(String username, String passwordHash) {
+        PlayerSnapshot snapshot = new PlayerSnapshot(nextId.getAndIncrement(), username, passwordHash, 0,
+                Player.SPAWN_X, Player.SPAWN_Y, Player.SPAWN_Z);
+        if (players.putIfAbsent(key(username), snapshot) != null) {
+            throw new IllegalStateException("Username already taken: " + username);
+        }
+        return snapshot.toPlayer();
+    }
+
+    @Override
+    public void saveAll(Collection<PlayerSnapshot> snapshots) {
+        snapshots.forEach(snapshot -> players.put(key(snapshot.username()), snapshot));
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+}
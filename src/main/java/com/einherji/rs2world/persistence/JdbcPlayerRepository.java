@@ -0,0 +1,109 @@
+package com.einherji.rs2world.persistence;
+
+import com.einherji.rs2world.player.Player;
+import com.einherji.rs2world.player.PlayerSnapshot;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Stores players in PostgreSQL. Connections are borrowed from the pooled data source, whose schema Flyway migrates
+ * from {@code db/migration} on startup.
+ */
+public class JdbcPlayerRepository implements PlayerRepository {
+
+    private static final String LOAD = """
+            SELECT a.id, a.username, a.password_hash, a.rights, s.x, s.y, s.z
+            FROM accounts a JOIN player_state s ON s.account_id = a.id
+            WHERE lower(a.username) = lower(?)""";
+    private static final String INSERT_ACCOUNT =
+            "INSERT INTO accounts (username, password_hash) VALUES (?, ?) RETURNING id";
+    private static final String INSERT_STATE = "INSERT INTO player_state (account_id, x, y, z) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_RIGHTS = "UPDATE accounts SET rights = ? WHERE id = ?";
+    private static final String UPDATE_STATE =
+            "UPDATE player_state SET x = ?, y = ?, z = ?, updated_at = now() WHERE account_id = ?";
+
+    private final DataSource dataSource;
+
+    public JdbcPlayerRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public Optional<Player> load(String username) {
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(LOAD)) {
+            statement.setString(1, username);
+            try (ResultSet result = statement.executeQuery()) {
+                if (!result.next()) return Optional.empty();
+                return Optional.of(new Player(result.getLong(1), result.getString(2), result.getString(3),
+                        result.getInt(4), result.getInt(5), result.getInt(6), result.getInt(7)));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Player create(String username, String passwordHash) {
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            long id;
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_ACCOUNT)) {
+                statement.setString(1, username);
+                statement.setString(2, passwordHash);
+                try (ResultSet result = statement.executeQuery()) {
+                    result.next();
+                    id = result.getLong(1);
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_STATE)) {
+                statement.setLong(1, id);
+                statement.setInt(2, Player.SPAWN_X);
+                statement.setInt(3, Player.SPAWN_Y);
+                statement.setInt(4, Player.SPAWN_Z);
+                statement.executeUpdate();
+            }
+            connection.commit();
+            return new Player(id, username, passwordHash, 0, Player.SPAWN_X, Player.SPAWN_Y, Player.SPAWN_Z);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<PlayerSnapshot> snapshots) {
+        if (snapshots.isEmpty()) return;
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement rights = connection.prepareStatement(UPDATE_RIGHTS);
+                 PreparedStatement state = connection.prepareStatement(UPDATE_STATE)) {
+                for (PlayerSnapshot snapshot : snapshots) {
+                    rights.setInt(1, snapshot.rights());
+                    rights.setLong(2, snapshot.id());
+                    rights.addBatch();
+                    state.setInt(1, snapshot.x());
+                    state.setInt(2, snapshot.y());
+                    state.setInt(3, snapshot.z());
+                    state.setLong(4, snapshot.id());
+                    state.addBatch();
+                }
+                rights.executeBatch();
+                state.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.einherji.rs2world.persistence;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+
+@Configuration
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class PersistenceConfiguration {
+
+    /**
+     * The pooled data source for {@code jdbc} persistence, configured through the usual {@code spring.datasource.*}
+     * properties. Spring Boot's Flyway integration migrates it from {@code db/migration} on startup.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rs2world.persistence.type", havingValue = "jdbc")
+    public DataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().build();
+    }
+
+    /**
+     * Picks the player store by {@code rs2world.persistence.type}: {@code jdbc} for PostgreSQL, {@code snapshot} for a
+     * local segment file, anything else keeps players in memory.
+     */
+    @Bean
+    public PlayerRepository playerRepository(@Value("${rs2world.persistence.type:memory}") String type,
+                                             @Value("${rs2world.persistence.snapshot.path:data/players.dat}")
+                                             String snapshotPath,
+                                             ObjectProvider<DataSource> dataSource) {
+        return switch (type) {
+            case "jdbc" -> new JdbcPlayerRepository(dataSource.getObject());
+            case "snapshot" -> new SnapshotPlayerRepository(Path.of(snapshotPath));
+            default -> new InMemoryPlayerRepository();
+        };
+    }
+
+}
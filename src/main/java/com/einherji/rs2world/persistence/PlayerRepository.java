@@ -0,0 +1,30 @@
+package com.einherji.rs2world.persistence;
+
+import com.einherji.rs2world.player.Player;
+import com.einherji.rs2world.player.PlayerSnapshot;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Stores accounts and player state. Implementations may block and are only called from the login pipeline and the
+ * {@link PlayerSaveService}'s writer thread, never from the engine.
+ */
+public interface PlayerRepository {
+
+    /**
+     * @return the player with the given username, compared case insensitively
+     */
+    Optional<Player> load(String username);
+
+    /**
+     * Creates an account with default player state at the spawn point.
+     */
+    Player create(String username, String passwordHash);
+
+    /**
+     * Stores the given snapshots in a single batch.
+     */
+    void saveAll(Collection<PlayerSnapshot> snapshots);
+
+}
@@ -0,0 +1,147 @@
+package com.einherji.rs2world.persistence;
+
+import com.einherji.rs2world.player.Player;
+import com.einherji.rs2world.player.PlayerSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind saving. The engine collects snapshots of dirty players, which are coalesced per player so only the
+ * latest state is written, and every few ticks the collected snapshots are handed to a background writer that stores
+ * them in a single batch. The engine never waits on the repository.
+ * <p>
+ * Only one batch is in flight at a time; while the writer is busy, snapshots keep coalescing for the next batch. A
+ * batch that fails is merged back into the pending snapshots, unless a newer snapshot of the same player arrived in
+ * the meantime. Until a snapshot has been written, {@link #load(String)} serves it in place of the stored state, so a
+ * player that logs out and straight back in never sees stale data.
+ */
+@Component
+public class PlayerSaveService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PlayerSaveService.class);
+
+    private final PlayerRepository playerRepository;
+    private final int saveIntervalTicks;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "rs2-player-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private final Queue<Map<Long, PlayerSnapshot>> failedBatches = new ConcurrentLinkedQueue<>();
+    private final Map<String, PlayerSnapshot> unsaved = new ConcurrentHashMap<>();
+    /*
+     * Snapshots waiting for the next batch, owned by the engine thread.
+     */
+    private Map<Long, PlayerSnapshot> pending = new LinkedHashMap<>();
+
+    public PlayerSaveService(PlayerRepository playerRepository,
+                             @Value("${rs2world.persistence.save-interval-ticks:100}") int saveIntervalTicks) {
+        if (saveIntervalTicks < 1) {
+            throw new IllegalArgumentException("Save interval must be at least one tick.");
+        }
+        this.playerRepository = playerRepository;
+        this.saveIntervalTicks = saveIntervalTicks;
+    }
+
+    /**
+     * Loads a player, preferring a collected snapshot that has not been written yet over the stored state. Safe to
+     * call from any thread.
+     */
+    public Optional<Player> load(String username) {
+        PlayerSnapshot snapshot = unsaved.get(key(username));
+        return snapshot != null ? Optional.of(snapshot.toPlayer()) : playerRepository.load(username);
+    }
+
+    /**
+     * @return whether the dirty players should be collected and flushed on the given tick
+     */
+    public boolean isDue(long tick) {
+        return tick % saveIntervalTicks == 0;
+    }
+
+    /**
+     * Takes a snapshot of the player if it changed since it was last collected. Must be called from the engine thread.
+     */
+    public void collect(Player player) {
+        if (!player.isDirty()) return;
+        PlayerSnapshot snapshot = player.snapshot();
+        pending.put(player.getId(), snapshot);
+        unsaved.put(key(snapshot.username()), snapshot);
+        player.clearDirty();
+    }
+
+    /**
+     * Hands the collected snapshots to the writer, unless it is still busy with the previous batch. Must be called
+     * from the engine thread.
+     */
+    public void flush() {
+        Map<Long, PlayerSnapshot> failed;
+        while ((failed = failedBatches.poll()) != null) {
+            failed.forEach(pending::putIfAbsent);
+        }
+        if (pending.isEmpty() || !writing.compareAndSet(false, true)) return;
+        Map<Long, PlayerSnapshot> batch = pending;
+        pending = new LinkedHashMap<>();
+        writer.execute(() -> {
+            try {
+                playerRepository.saveAll(batch.values());
+                batch.values().forEach(snapshot -> unsaved.remove(key(snapshot.username()), snapshot));
+            } catch (RuntimeException e) {
+                LOGGER.error("Encountered error while saving {} players: ", batch.size(), e);
+                failedBatches.offer(batch);
+            } finally {
+                writing.set(false);
+            }
+        });
+    }
+
+    /**
+     * Writes every collected snapshot and blocks until the batch is stored, queueing behind a batch that is still in
+     * flight. Meant for shutdown, once the engine has stopped.
+     */
+    public void flushAndWait() {
+        Map<Long, PlayerSnapshot> failed;
+        while ((failed = failedBatches.poll()) != null) {
+            failed.forEach(pending::putIfAbsent);
+        }
+        if (pending.isEmpty()) return;
+        Map<Long, PlayerSnapshot> batch = pending;
+        pending = new LinkedHashMap<>();
+        try {
+            writer.submit(() -> playerRepository.saveAll(batch.values())).get();
+            LOGGER.info("Saved {} players", batch.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while saving {} players", batch.size());
+        } catch (ExecutionException e) {
+            LOGGER.error("Encountered error while saving {} players: ", batch.size(), e.getCause());
+        }
+    }
+
+    /**
+     * @return the amount of snapshots waiting for the next batch
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+}
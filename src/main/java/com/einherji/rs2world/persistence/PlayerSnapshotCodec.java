@@ -0,0 +1,37 @@
+package com.einherji.rs2world.persistence;
+
+import com.einherji.rs2world.net.util.Rs2ReadBuffer;
+import com.einherji.rs2world.net.util.Rs2WriteBuffer;
+import com.einherji.rs2world.player.PlayerSnapshot;
+
+/**
+ * The binary player save format, written with the same encoders as the network protocol. Also used to hand players
+ * over between a world and its gateway.
+ */
+public final class PlayerSnapshotCodec {
+
+    private PlayerSnapshotCodec() {
+    }
+
+    public static void encode(Rs2WriteBuffer out, PlayerSnapshot snapshot) {
+        out.writeLong(snapshot.id());
+        out.writeString(snapshot.username());
+        out.writeString(snapshot.passwordHash());
+        out.writeByte(snapshot.rights());
+        out.writeShort(snapshot.x());
+        out.writeShort(snapshot.y());
+        out.writeByte(snapshot.z());
+    }
+
+    public static PlayerSnapshot decode(Rs2ReadBuffer in) {
+        long id = in.readLong();
+        String username = in.readString();
+        String passwordHash = in.readString();
+        int rights = in.readByte(false);
+        int x = in.readShort(false);
+        int y = in.readShort(false);
+        int z = in.readByte(false);
+        return new PlayerSnapshot(id, username, passwordHash, rights, x, y, z);
+    }
+
+}
@@ -0,0 +1,255 @@
+package com.einherji.rs2world.persistence;
+
+import com.einherji.rs2world.net.util.Rs2Buffer;
+import com.einherji.rs2world.net.util.Rs2WriteBuffer;
+import com.einherji.rs2world.player.Player;
+import com.einherji.rs2world.player.PlayerSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Stores players in a single memory-mapped, append-only segment file. Every save appends a new record and an
+ * in-memory index points each username at its latest record, so loading a player is a map lookup and a decode
+ * straight from the mapping. A batch of saves is encoded up front and appended with one sequential copy.
+ * <p>
+ * Each record is prefixed with its length and a CRC32 of its content. When the segment is opened, records are
+ * replayed until the first one that is incomplete or fails its checksum, which is where a crash interrupted the last
+ * write; everything from there on is discarded. Once superseded records take up more than half of the segment, the
+ * live records are copied into a fresh segment that atomically replaces the old one.
+ */
+public class SnapshotPlayerRepository implements PlayerRepository, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotPlayerRepository.class);
+
+    private static final int MAGIC = 0x52533250;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 4096;
+    private static final int MIN_MAPPING_SIZE = 1 << 20;
+    private static final int MIN_COMPACTION_SIZE = 1 << 20;
+
+    private final Path path;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> index = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int writePosition;
+    private int liveBytes;
+    private long nextId = 1;
+
+    public SnapshotPlayerRepository(Path path) {
+        this.path = path;
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            open();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open player segment " + path, e);
+        }
+    }
+
+    @Override
+    public Optional<Player> load(String username) {
+        lock.readLock().lock();
+        try {
+            Integer offset = index.get(key(username));
+            if (offset == null) return Optional.empty();
+            return Optional.of(decode(offset).toPlayer());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Player create(String username, String passwordHash) {
+        lock.writeLock().lock();
+        try {
+            if (index.containsKey(key(username))) {
+                throw new IllegalStateException("Username already taken: " + username);
+            }
+            PlayerSnapshot snapshot = new PlayerSnapshot(nextId++, username, passwordHash, 0,
+                    Player.SPAWN_X, Player.SPAWN_Y, Player.SPAWN_Z);
+            append(List.of(snapshot));
+            return snapshot.toPlayer();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<PlayerSnapshot> snapshots) {
+        if (snapshots.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            append(snapshots);
+            if (writePosition >= MIN_COMPACTION_SIZE && liveBytes < (writePosition - HEADER_SIZE) / 2) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            segment.force();
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.error("Encountered error while closing player segment: ", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean created = channel.size() == 0;
+        map((int) Math.max(channel.size(), MIN_MAPPING_SIZE));
+        if (created) {
+            segment.putInt(0, MAGIC);
+            segment.putInt(4, VERSION);
+        } else if (segment.getInt(0) != MAGIC || segment.getInt(4) != VERSION) {
+            throw new IOException("Not a player segment: " + path);
+        }
+        replay();
+    }
+
+    /**
+     * Rebuilds the index from the records in the segment and discards whatever follows the last intact record.
+     */
+    private void replay() {
+        index.clear();
+        liveBytes = 0;
+        int position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= segment.capacity()) {
+            int length = segment.getInt(position);
+            if (length <= 0 || length > MAX_RECORD_SIZE || position + RECORD_HEADER_SIZE + length > segment.capacity()) {
+                break;
+            }
+            if (segment.getInt(position + 4) != checksum(segment, position + RECORD_HEADER_SIZE, length)) {
+                break;
+            }
+            PlayerSnapshot snapshot = decode(position);
+            index(snapshot, position, RECORD_HEADER_SIZE + length);
+            nextId = Math.max(nextId, snapshot.id() + 1);
+            position += RECORD_HEADER_SIZE + length;
+        }
+        writePosition = position;
+        int tail = writePosition;
+        while (tail < segment.capacity() && segment.get(tail) == 0) tail++;
+        if (tail < segment.capacity()) {
+            LOGGER.warn("Discarding incomplete records at offset {} of player segment {}", writePosition, path);
+            for (int i = writePosition; i < segment.capacity(); i++) segment.put(i, (byte) 0);
+        }
+    }
+
+    private void append(Collection<PlayerSnapshot> snapshots) throws IOException {
+        Rs2WriteBuffer out = Rs2Buffer.createWriteBuffer(ByteBuffer.allocate(snapshots.size() * 128));
+        int[] offsets = new int[snapshots.size()];
+        int i = 0;
+        for (PlayerSnapshot snapshot : snapshots) {
+            int start = out.getBuffer().position();
+            offsets[i++] = start;
+            out.writeInt(0);
+            out.writeInt(0);
+            PlayerSnapshotCodec.encode(out, snapshot);
+            int length = out.getBuffer().position() - start - RECORD_HEADER_SIZE;
+            if (length > MAX_RECORD_SIZE) {
+                throw new IllegalStateException("Player record of " + length + " bytes exceeds " + MAX_RECORD_SIZE);
+            }
+            out.getBuffer().putInt(start, length);
+            out.getBuffer().putInt(start + 4, checksum(out.getBuffer(), start + RECORD_HEADER_SIZE, length));
+        }
+        ByteBuffer batch = out.getBuffer().flip();
+        int size = batch.remaining();
+        if (writePosition + size > segment.capacity()) {
+            map(Math.max(segment.capacity() * 2, writePosition + size));
+        }
+        segment.put(writePosition, batch, 0, size);
+        segment.force();
+        i = 0;
+        for (PlayerSnapshot snapshot : snapshots) {
+            int end = i + 1 < offsets.length ? offsets[i + 1] : size;
+            index(snapshot, writePosition + offsets[i], end - offsets[i]);
+            i++;
+        }
+        writePosition += size;
+    }
+
+    /**
+     * Copies the live records into a fresh segment and swaps it in place of the current one.
+     */
+    private void compact() throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        int size = HEADER_SIZE + liveBytes;
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer copy = target.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, MIN_MAPPING_SIZE));
+            copy.putInt(0, MAGIC);
+            copy.putInt(4, VERSION);
+            int position = HEADER_SIZE;
+            for (int offset : index.values().stream().sorted().toList()) {
+                int length = RECORD_HEADER_SIZE + segment.getInt(offset);
+                copy.put(position, segment, offset, length);
+                position += length;
+            }
+            copy.force();
+        }
+        channel.close();
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOGGER.info("Compacted player segment {} from {} to {} bytes", path, writePosition, size);
+        open();
+    }
+
+    private void map(int size) throws IOException {
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private void index(PlayerSnapshot snapshot, int offset, int length) {
+        Integer previous = index.put(key(snapshot.username()), offset);
+        if (previous != null) liveBytes -= RECORD_HEADER_SIZE + segment.getInt(previous);
+        liveBytes += length;
+    }
+
+    private PlayerSnapshot decode(int offset) {
+        int length = segment.getInt(offset);
+        ByteBuffer record = segment.slice(offset + RECORD_HEADER_SIZE, length);
+        return PlayerSnapshotCodec.decode(Rs2Buffer.createReadBuffer(record));
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.einherji.rs2world.player;
+
+/**
+ * The persistent state of a logged in player. Owned by the engine thread; every change marks the player dirty so the
+ * next save picks it up.
+ */
+public class Player {
+
+    public static final int SPAWN_X = 3222;
+    public static final int SPAWN_Y = 3218;
+    public static final int SPAWN_Z = 0;
+
+    private final long id;
+    private final String username;
+    private final String passwordHash;
+    private int rights;
+    private int x;
+    private int y;
+    private int z;
+    private boolean dirty;
+
+    public Player(long id, String username, String passwordHash, int rights, int x, int y, int z) {
+        this.id = id;
+        this.username = username;
+        this.passwordHash = passwordHash;
+        this.rights = rights;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * @return an immutable copy of the state that is saved, safe to hand to other threads
+     */
+    public PlayerSnapshot snapshot() {
+        return new PlayerSnapshot(id, username, passwordHash, rights, x, y, z);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    public int getRights() {
+        return rights;
+    }
+
+    public void setRights(int rights) {
+        this.rights = rights;
+        dirty = true;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    public void setPosition(int x, int y, int z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        dirty = true;
+    }
+
+    /**
+     * @return whether the player changed since it was last collected for saving
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void clearDirty() {
+        dirty = false;
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.einherji.rs2world.player;
+
+/**
+ * The saved state of a {@link Player} at a single point in time.
+ */
+public record PlayerSnapshot(long id, String username, String passwordHash, int rights, int x, int y, int z) {
+
+    public Player toPlayer() {
+        return new Player(id, username, passwordHash, rights, x, y, z);
+    }
+}
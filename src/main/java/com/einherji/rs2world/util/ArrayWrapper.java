@@ -3,13 +3,23 @@ package com.einherji.rs2world.util;
 import java.util.Objects;
 import java.util.function.Consumer;
 
+/**
+ * A fixed-capacity array of slots. Free slots are kept on a stack of indices, so placing and removing elements is O(1)
+ * and a slot index stays valid for as long as its element is placed.
+ */
 //TODO: contract interface
 public class ArrayWrapper<E> {
 
     private final E[] elements;
+    private final int[] freeSlots;
+    private int freeCount;
 
     ArrayWrapper(E[] elements) {
         this.elements = elements;
+        this.freeSlots = new int[elements.length];
+        for (int i = elements.length - 1; i >= 0; i--) {
+            if (elements[i] == null) freeSlots[freeCount++] = i;
+        }
     }
 
     public static <E> ArrayWrapper<E> wrap(E[] array) {
@@ -17,23 +27,55 @@ public class ArrayWrapper<E> {
         return new ArrayWrapper<>(array);
     }
 
+    /**
+     * Places the element in a free slot. Slots are handed out in ascending order at first, after which the most
+     * recently vacated slot is reused first.
+     *
+     * @return the slot index, or -1 if every slot is taken
+     */
     public int place(E e) {
-        int emptyIndex = indexOf(null);
-        if (emptyIndex >= 0) {
-            elements[emptyIndex] = e;
+        Objects.requireNonNull(e);
+        if (freeCount == 0) return -1;
+        int index = freeSlots[--freeCount];
+        elements[index] = e;
+        return index;
+    }
+
+    /**
+     * Empties the slot at the given index and makes it available to {@link #place(Object)} again.
+     *
+     * @return the element that occupied the slot, or null if it was already empty
+     */
+    public E remove(int index) {
+        E e = elements[index];
+        if (e != null) {
+            elements[index] = null;
+            freeSlots[freeCount++] = index;
         }
-        return emptyIndex;
+        return e;
+    }
+
+    public E get(int index) {
+        return elements[index];
     }
 
     public int indexOf(E e) {
         if (e != null) {
-            for (int i = 0; i < elements.length; i++) if (elements[i].equals(e)) return i;
+            for (int i = 0; i < elements.length; i++) if (e.equals(elements[i])) return i;
         } else {
             for (int i = 0; i < elements.length; i++) if (elements[i] == null) return i;
         }
         return -1;
     }
 
+    public int size() {
+        return elements.length - freeCount;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
     public void forEach(Consumer<E> consumer) {
         Objects.requireNonNull(consumer);
         for (E e : elements) if (e != null) consumer.accept(e);
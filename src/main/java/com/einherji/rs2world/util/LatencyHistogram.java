@@ -0,0 +1,81 @@
+package com.einherji.rs2world.util;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size log-linear histogram of durations in nanoseconds, in the style of HdrHistogram. Every power of two is
+ * split into {@value #SUB_BUCKETS} linear sub-buckets, so any recorded value is reported within about 6% of its true
+ * value over the whole range of a long, while recording is a couple of shifts and an array increment that never
+ * allocates.
+ * <p>
+ * Percentiles report the highest value of the sub-bucket they fall into. The maximum is tracked exactly. This class is
+ * not thread safe.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = Long.SIZE - SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[BUCKETS * SUB_BUCKETS];
+    private long count;
+    private long max;
+    private long total;
+
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts[indexOf(value)]++;
+        count++;
+        total += value;
+        if (value > max) max = value;
+    }
+
+    /**
+     * @param percentile a percentile between 0 and 100
+     * @return the value below which the given percentile of the recorded values fall, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) return Math.min(highestValueOf(i), max);
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        max = 0;
+        total = 0;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long highestValueOf(int index) {
+        int bucket = index / SUB_BUCKETS;
+        int subBucket = index % SUB_BUCKETS;
+        if (bucket == 0) return subBucket;
+        int shift = bucket - 1;
+        return ((long) (SUB_BUCKETS + subBucket) << shift) + (1L << shift) - 1;
+    }
+
+}
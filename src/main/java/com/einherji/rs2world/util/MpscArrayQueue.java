@@ -0,0 +1,108 @@
+package com.einherji.rs2world.util;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded lock-free queue for many producers and a single consumer, backed by a ring of slots. Producers claim a
+ * slot by advancing the tail with a CAS and then publish their element into it. The consumer never waits for a
+ * producer: it stops at the first claimed slot whose element is not published yet and picks it up on its next call,
+ * so a producer that is preempted halfway through an offer cannot stall the consumer. Nothing is allocated per
+ * element.
+ * <p>
+ * {@link #offer(Object)} is safe to call from any thread, {@link #poll()} and {@link #drain(Consumer, int)} only from
+ * the single consumer thread.
+ */
+public final class MpscArrayQueue<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final int capacity;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    /*
+     * The last head a producer has seen, which spares producers from reading the consumer's counter on every offer.
+     */
+    private volatile long headCache;
+
+    /**
+     * @param capacity the maximum amount of queued elements, rounded up to a power of two
+     */
+    public MpscArrayQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30.");
+        }
+        int size = Integer.bitCount(capacity) == 1 ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.capacity = size;
+    }
+
+    /**
+     * @return false if the queue is full
+     */
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        long current;
+        do {
+            current = tail.get();
+            long wrapPoint = current - capacity;
+            if (headCache <= wrapPoint) {
+                headCache = head.get();
+                if (headCache <= wrapPoint) return false;
+            }
+        } while (!tail.compareAndSet(current, current + 1));
+        slots.lazySet((int) (current & mask), e);
+        return true;
+    }
+
+    /**
+     * @return the oldest element, or null if the queue is empty or the oldest element is not published yet
+     */
+    public E poll() {
+        long current = head.get();
+        int index = (int) (current & mask);
+        E e = slots.get(index);
+        if (e == null) return null;
+        slots.lazySet(index, null);
+        head.lazySet(current + 1);
+        return e;
+    }
+
+    /**
+     * Hands at most the given amount of elements to the consumer, oldest first. Only the elements that were claimed
+     * when the drain started are taken, so producers that keep offering cannot extend it, and the drain ends early at
+     * an element that is not published yet.
+     *
+     * @return the amount of elements drained
+     */
+    public int drain(Consumer<E> consumer, int limit) {
+        long current = head.get();
+        long end = Math.min(tail.get(), current + limit);
+        int drained = 0;
+        for (; current < end; current++) {
+            int index = (int) (current & mask);
+            E e = slots.get(index);
+            if (e == null) break;
+            slots.lazySet(index, null);
+            head.lazySet(current + 1);
+            consumer.accept(e);
+            drained++;
+        }
+        return drained;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -2,6 +2,10 @@ package com.einherji.rs2world.util;
 
 import java.util.Objects;
 
+/**
+ * An {@link ArrayWrapper} whose slots can be placed and removed from any thread. Reads of individual slots are not
+ * synchronized; publishing an element to other threads is left to the caller.
+ */
 public class ThreadSafeArrayWrapper<E> extends ArrayWrapper<E> {
 
     private final Object mutex = new Object();
@@ -21,4 +25,18 @@ public class ThreadSafeArrayWrapper<E> extends ArrayWrapper<E> {
             return super.place(e);
         }
     }
+
+    @Override
+    public E remove(int index) {
+        synchronized (mutex) {
+            return super.remove(index);
+        }
+    }
+
+    @Override
+    public int size() {
+        synchronized (mutex) {
+            return super.size();
+        }
+    }
 }
@@ -1,5 +1,8 @@
 package com.einherji.rs2world.util;
 
+/**
+ * Measures elapsed milliseconds on the monotonic clock, so wall clock adjustments never skew it.
+ */
 public class Timer {
 
     private long lastMeasure;
@@ -9,11 +12,11 @@ public class Timer {
     }
 
     public void reset() {
-        lastMeasure = System.currentTimeMillis();
+        lastMeasure = System.nanoTime();
     }
 
     public long elapsed() {
-        return System.currentTimeMillis() - lastMeasure;
+        return (System.nanoTime() - lastMeasure) / 1_000_000;
     }
 
     public boolean elapsed(long t) {
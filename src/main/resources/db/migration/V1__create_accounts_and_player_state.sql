@@ -0,0 +1,19 @@
+CREATE TABLE accounts
+(
+    id            BIGSERIAL PRIMARY KEY,
+    username      VARCHAR(12)  NOT NULL,
+    password_hash VARCHAR(128) NOT NULL,
+    rights        SMALLINT     NOT NULL DEFAULT 0,
+    created_at    TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
+
+CREATE UNIQUE INDEX accounts_username_idx ON accounts (lower(username));
+
+CREATE TABLE player_state
+(
+    account_id BIGINT PRIMARY KEY REFERENCES accounts (id) ON DELETE CASCADE,
+    x          INT         NOT NULL,
+    y          INT         NOT NULL,
+    z          SMALLINT    NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
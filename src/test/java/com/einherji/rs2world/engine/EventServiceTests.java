@@ -0,0 +1,145 @@
+package com.einherji.rs2world.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventServiceTests {
+
+    /**
+     * One delay for the root wheel and one for each of the four outer wheels.
+     */
+    private static final int[] DELAYS = {5, 300, 20_000, 2_000_000, 70_000_000};
+
+    private final Thread engineThread = Thread.currentThread();
+    private final List<String> fired = new ArrayList<>();
+    private long tick;
+    private final EventService eventService =
+            new EventService(() -> Thread.currentThread() == engineThread, () -> tick);
+
+    @Test
+    void unlinksCancelledFuturesFromEveryWheelLevel() {
+        List<EventFuture> cancelled = new ArrayList<>();
+        for (int delay : DELAYS) {
+            cancelled.add(eventService.schedule(delay, record("cancelled:" + delay)));
+            eventService.schedule(delay, record("kept:" + delay));
+        }
+        assertEquals(2 * DELAYS.length, eventService.getLiveFutureCount());
+
+        cancelled.forEach(EventFuture::cancel);
+        assertEquals(DELAYS.length, eventService.getLiveFutureCount());
+        assertEquals(DELAYS.length, eventService.getTotalCancelledFutures());
+        cancelled.forEach(EventFuture::cancel);
+        assertEquals(DELAYS.length, eventService.getTotalCancelledFutures());
+        assertTrue(cancelled.stream().allMatch(EventFuture::isCancelled));
+
+        runTo(DELAYS[DELAYS.length - 1]);
+        List<String> expected = new ArrayList<>();
+        for (int delay : DELAYS) {
+            expected.add("kept:" + delay + "@" + delay);
+        }
+        assertEquals(expected, fired);
+        assertEquals(0, eventService.getLiveFutureCount());
+    }
+
+    @Test
+    void stopsARecurringEventThatCancelsItself() {
+        EventFuture[] future = new EventFuture[1];
+        future[0] = eventService.schedule(1, () -> {
+            fired.add("recurring@" + tick);
+            if (tick == 3) future[0].cancel();
+            return 1;
+        });
+        runTo(10);
+        assertEquals(List.of("recurring@1", "recurring@2", "recurring@3"), fired);
+        assertEquals(0, eventService.getLiveFutureCount());
+        assertEquals(1, eventService.getTotalCancelledFutures());
+    }
+
+    @Test
+    void drainsSubmissionsFromOtherThreadsInArrivalOrder() throws InterruptedException {
+        onOtherThread(() -> {
+            eventService.schedule(1, record("first"));
+            eventService.schedule(1, record("second"));
+            eventService.schedule(1, record("third"));
+        });
+        assertEquals(0, eventService.getLiveFutureCount());
+        runTick();
+        assertEquals(List.of("first@1", "second@1", "third@1"), fired);
+    }
+
+    @Test
+    void countsTheDelayOfASubmissionFromTheTickItIsDrainedOn() throws InterruptedException {
+        tick = 10;
+        onOtherThread(() -> eventService.schedule(3, record("submitted")));
+        // the engine fell behind, so the submission is only drained two ticks later
+        tick = 12;
+        runTicks(5);
+        assertEquals(List.of("submitted@15"), fired);
+    }
+
+    @Test
+    void dropsASubmissionThatWasCancelledBeforeTheDrain() throws InterruptedException {
+        onOtherThread(() -> eventService.schedule(1, record("cancelled")).cancel());
+        assertEquals(1, eventService.getCancelledFutureCount());
+        runTick();
+        assertEquals(0, eventService.getCancelledFutureCount());
+        assertEquals(1, eventService.getTotalCancelledFutures());
+        assertEquals(0, eventService.getLiveFutureCount());
+        runTicks(3);
+        assertEquals(List.of(), fired);
+    }
+
+    @Test
+    void unlinksAFutureCancelledFromAnotherThreadOnTheNextDrain() throws InterruptedException {
+        EventFuture future = eventService.schedule(5, record("cancelled"));
+        onOtherThread(future::cancel);
+        assertEquals(1, eventService.getCancelledFutureCount());
+        assertEquals(1, eventService.getLiveFutureCount());
+        runTick();
+        assertEquals(0, eventService.getCancelledFutureCount());
+        assertEquals(1, eventService.getTotalCancelledFutures());
+        assertEquals(0, eventService.getLiveFutureCount());
+        runTicks(10);
+        assertEquals(List.of(), fired);
+    }
+
+    private Event record(String name) {
+        return () -> {
+            fired.add(name + "@" + tick);
+            return 0;
+        };
+    }
+
+    /**
+     * Runs the event phase of every tick up to and including the given one, the way the engine does.
+     */
+    private void runTo(long lastTick) {
+        while (tick < lastTick) {
+            runTick();
+        }
+    }
+
+    private void runTicks(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            runTick();
+        }
+    }
+
+    private void runTick() {
+        eventService.drainSubmissions();
+        tick++;
+        eventService.executeScheduledEvents();
+    }
+
+    private static void onOtherThread(Runnable task) throws InterruptedException {
+        Thread thread = new Thread(task);
+        thread.start();
+        thread.join();
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.einherji.rs2world.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TickLoopTests {
+
+    private static final long T = Engine.TICK_DURATION;
+
+    private final FakeEngine engine = new FakeEngine();
+    private final List<String> lateTicks = new ArrayList<>();
+
+    @Test
+    void keepsAFixedScheduleWhileTicksFitTheirDuration() {
+        TickLoop loop = loop(TickOverrunPolicy.CATCH_UP, 5);
+        assertEquals(List.of(0L, T, 2 * T, 3 * T), run(loop, 100, T - 1, 0, 300));
+        assertEquals(List.of(), lateTicks);
+    }
+
+    @Test
+    void skipsTheTicksAnOverrunMissed() {
+        TickLoop loop = loop(TickOverrunPolicy.SKIP, 5);
+        assertEquals(List.of(0L, 3 * T, 4 * T), run(loop, 2 * T + T / 2, 100, 100));
+        assertEquals(List.of("1:" + (T + T / 2) + ":SKIP"), lateTicks);
+    }
+
+    @Test
+    void catchesUpOnMissedTicksBackToBack() {
+        TickLoop loop = loop(TickOverrunPolicy.CATCH_UP, 5);
+        long overran = 3 * T + T / 2;
+        assertEquals(List.of(0L, overran, overran + 100, overran + 200, overran + 300, 5 * T),
+                run(loop, overran, 100, 100, 100, 100, 100));
+        // only the long tick is reported, not the catch-up ticks that merely started late
+        assertEquals(List.of("1:" + (overran - T) + ":CATCH_UP"), lateTicks);
+    }
+
+    @Test
+    void catchesUpOnNoMoreThanTheConfiguredTicks() {
+        TickLoop loop = loop(TickOverrunPolicy.CATCH_UP, 1);
+        assertEquals(List.of(0L, 5 * T, 5 * T + 100, 6 * T), run(loop, 5 * T, 100, 100, 100));
+        assertEquals(List.of("1:" + 4 * T + ":CATCH_UP"), lateTicks);
+    }
+
+    @Test
+    void stretchesTheScheduleFromTheEndOfAnOverrun() {
+        TickLoop loop = loop(TickOverrunPolicy.STRETCH, 5);
+        assertEquals(List.of(0L, T + 400, 2 * T + 400, 3 * T + 400), run(loop, T + 400, 100, 100, 100));
+        assertEquals(List.of("1:400:STRETCH"), lateTicks);
+    }
+
+    @Test
+    void keepsTickingWhenTheEngineOrAListenerFails() {
+        TickLoop loop = loop(TickOverrunPolicy.STRETCH, 5);
+        loop.addLateTickListener((tick, overrunNanos, policy) -> {
+            throw new IllegalStateException("listener failed");
+        });
+        loop.addLateTickListener((tick, overrunNanos, policy) -> lateTicks.add("again:" + tick));
+        engine.failing = true;
+        assertEquals(List.of(0L, T + 1, 2 * T + 1), run(loop, T + 1, 100, 100));
+        assertEquals(List.of("1:1:STRETCH", "again:1"), lateTicks);
+    }
+
+    private TickLoop loop(TickOverrunPolicy policy, int maxCatchUpTicks) {
+        TickLoop loop = new TickLoop(engine, policy, maxCatchUpTicks, () -> engine.nanoTime);
+        loop.addLateTickListener((tick, overrunNanos, p) ->
+                lateTicks.add(tick + ":" + TimeUnit.NANOSECONDS.toMillis(overrunNanos) + ":" + p));
+        return loop;
+    }
+
+    /**
+     * Drives the loop the way {@link TickLoop#run()} does, except that waiting for a deadline moves the fake clock
+     * straight to it.
+     *
+     * @param durations how many milliseconds each tick takes
+     * @return the millisecond each tick started at
+     */
+    private List<Long> run(TickLoop loop, long... durations) {
+        List<Long> starts = new ArrayList<>();
+        long deadline = engine.nanoTime;
+        for (long duration : durations) {
+            starts.add(TimeUnit.NANOSECONDS.toMillis(engine.nanoTime));
+            engine.nextDuration = TimeUnit.MILLISECONDS.toNanos(duration);
+            deadline = loop.tick(deadline);
+            engine.nanoTime = Math.max(engine.nanoTime, deadline);
+        }
+        return starts;
+    }
+
+    /**
+     * An engine whose ticks do nothing but move the fake clock forward.
+     */
+    private static final class FakeEngine extends Engine {
+
+        private long nanoTime;
+        private long nextDuration;
+        private long tick;
+        private boolean failing;
+
+        FakeEngine() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public void run() {
+            nanoTime += nextDuration;
+            tick++;
+            if (failing) throw new IllegalStateException("tick failed");
+        }
+
+        @Override
+        public long getCurrentTick() {
+            return tick;
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.einherji.rs2world.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TickProfilerTests {
+
+    private static final long NORMAL_TICK = 1_000_000;
+    private static final long TICK_DURATION_NANOS = Engine.TICK_DURATION * 1_000_000;
+
+    private final TickProfiler profiler = new TickProfiler(2);
+    private long tick;
+
+    @Test
+    void rejectsAWindowShorterThanAMinute() {
+        assertThrows(IllegalArgumentException.class, () -> new TickProfiler(0));
+        assertThrows(IllegalArgumentException.class, () -> new TickProfiler(-1));
+    }
+
+    @Test
+    void publishesAReportOncePerMinuteOfTicks() {
+        for (int i = 1; i < TickProfiler.TICKS_PER_REPORT; i++) {
+            profiler.endTick(++tick, NORMAL_TICK);
+        }
+        assertNull(profiler.getLastReport());
+
+        profiler.endTick(++tick, NORMAL_TICK);
+        TickReport report = profiler.getLastReport();
+        assertEquals(TickProfiler.TICKS_PER_REPORT, report.lastTick());
+        assertEquals(TickProfiler.TICKS_PER_REPORT, report.tick().count());
+        assertEquals(NORMAL_TICK, report.tick().max());
+        assertEquals(0, report.overruns());
+    }
+
+    @Test
+    void countsOverrunsPerMinuteAndKeepsTheWorstTickForTheWindow() {
+        TickReport first = runMinute(TICK_DURATION_NANOS + 100_000_000, TICK_DURATION_NANOS + 50_000_000);
+        assertEquals(2, first.overruns());
+        assertEquals(50, first.worstTick());
+        assertEquals(TICK_DURATION_NANOS + 100_000_000, first.worstTickNanos());
+
+        // a tick of exactly the tick duration is not an overrun
+        TickReport second = runMinute(TICK_DURATION_NANOS + 10_000_000, TICK_DURATION_NANOS);
+        assertEquals(1, second.overruns());
+        assertEquals(50, second.worstTick(), "the first minute is still within the window");
+
+        TickReport third = runMinute(NORMAL_TICK, NORMAL_TICK);
+        assertEquals(0, third.overruns());
+        assertEquals(TickProfiler.TICKS_PER_REPORT + 50, third.worstTick(), "the first minute left the window");
+        assertEquals(TICK_DURATION_NANOS + 10_000_000, third.worstTickNanos());
+        assertEquals(3, profiler.getTotalOverruns());
+    }
+
+    @Test
+    void resetsThePhaseHistogramsEveryMinute() {
+        for (int i = 0; i < TickProfiler.TICKS_PER_REPORT; i++) {
+            profiler.endPhase(TickPhase.EVENTS, System.nanoTime());
+            profiler.endTick(++tick, NORMAL_TICK);
+        }
+        TickReport first = profiler.getLastReport();
+        assertEquals(TickProfiler.TICKS_PER_REPORT, first.phases().get(TickPhase.EVENTS).count());
+        assertEquals(0, first.phases().get(TickPhase.PACKETS).count());
+        assertEquals(TickPhase.values().length, first.phases().size());
+
+        TickReport second = runMinute(NORMAL_TICK, NORMAL_TICK);
+        assertEquals(0, second.phases().get(TickPhase.EVENTS).count());
+    }
+
+    /**
+     * Runs a minute of ticks that take {@link #NORMAL_TICK}, except for its 50th and 60th tick.
+     *
+     * @return the report published for the minute
+     */
+    private TickReport runMinute(long fiftiethTick, long sixtiethTick) {
+        for (int i = 1; i <= TickProfiler.TICKS_PER_REPORT; i++) {
+            long duration = i == 50 ? fiftiethTick : i == 60 ? sixtiethTick : NORMAL_TICK;
+            profiler.endTick(++tick, duration);
+        }
+        return profiler.getLastReport();
+    }
+
+}
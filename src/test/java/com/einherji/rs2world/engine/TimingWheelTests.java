@@ -0,0 +1,138 @@
+package com.einherji.rs2world.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTests {
+
+    private static final long START_TICK = 1_000;
+
+    @Test
+    void firesEventsOnTheirScheduledTick() {
+        TimingWheel wheel = new TimingWheel(START_TICK);
+        EventFuture now = schedule(wheel, START_TICK);
+        EventFuture soon = schedule(wheel, START_TICK + 1);
+        EventFuture endOfRoot = schedule(wheel, START_TICK + 255);
+        assertEquals(START_TICK, advanceUntilFired(wheel, now));
+        assertEquals(START_TICK + 1, advanceUntilFired(wheel, soon));
+        assertEquals(START_TICK + 255, advanceUntilFired(wheel, endOfRoot));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cascadesEventsDownThroughEveryLevel() {
+        TimingWheel wheel = new TimingWheel(START_TICK);
+        long[] delays = {256, 257, 16_383, 16_384, 16_385, (1 << 20) - 1, 1 << 20, (1 << 20) + 77};
+        List<EventFuture> futures = new ArrayList<>();
+        for (long delay : delays) {
+            futures.add(schedule(wheel, START_TICK + delay));
+        }
+        for (int i = 0; i < delays.length; i++) {
+            assertEquals(START_TICK + delays[i], advanceUntilFired(wheel, futures.get(i)));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void firesLongDelaysFromTheOutermostWheel() {
+        TimingWheel wheel = new TimingWheel(START_TICK);
+        long delay = (1L << 26) + 3;
+        EventFuture future = schedule(wheel, START_TICK + delay);
+        assertEquals(START_TICK + delay, advanceUntilFired(wheel, future));
+    }
+
+    @Test
+    void firesOverdueEventsOnTheNextTick() {
+        TimingWheel wheel = new TimingWheel(START_TICK);
+        wheel.advance();
+        EventFuture overdue = schedule(wheel, START_TICK - 10);
+        assertEquals(START_TICK + 1, advanceUntilFired(wheel, overdue));
+    }
+
+    @Test
+    void keepsSchedulingOrderWithinATick() {
+        TimingWheel wheel = new TimingWheel(START_TICK);
+        EventFuture first = schedule(wheel, START_TICK + 300);
+        EventFuture second = schedule(wheel, START_TICK + 300);
+        for (int i = 0; i < 300; i++) {
+            wheel.advance();
+            assertNull(wheel.pollExpired());
+        }
+        wheel.advance();
+        assertEquals(first, wheel.pollExpired());
+        assertEquals(second, wheel.pollExpired());
+        assertNull(wheel.pollExpired());
+    }
+
+    @Test
+    void doesNotFireCancelledEvents() {
+        TimingWheel wheel = new TimingWheel(START_TICK);
+        EventFuture inRoot = schedule(wheel, START_TICK + 5);
+        EventFuture inOuter = schedule(wheel, START_TICK + 20_000);
+        EventFuture kept = schedule(wheel, START_TICK + 20_001);
+        wheel.remove(inRoot);
+        wheel.remove(inOuter);
+        wheel.remove(inOuter);
+        assertEquals(1, wheel.size());
+        assertEquals(START_TICK + 20_001, advanceUntilFired(wheel, kept));
+    }
+
+    @Test
+    void doesNotFireEventsCancelledWhileTheirTickIsExpiring() {
+        TimingWheel wheel = new TimingWheel(START_TICK);
+        EventFuture first = schedule(wheel, START_TICK);
+        EventFuture middle = schedule(wheel, START_TICK);
+        EventFuture last = schedule(wheel, START_TICK);
+        wheel.advance();
+        assertEquals(first, wheel.pollExpired());
+        wheel.remove(last);
+        assertEquals(middle, wheel.pollExpired());
+        assertNull(wheel.pollExpired());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void reschedulesWhileExpiringIntoALaterTick() {
+        TimingWheel wheel = new TimingWheel(START_TICK);
+        EventFuture repeating = schedule(wheel, START_TICK);
+        EventFuture other = schedule(wheel, START_TICK);
+        wheel.advance();
+        assertEquals(repeating, wheel.pollExpired());
+        repeating.setScheduledExecutionTime(wheel.getCurrentTick());
+        wheel.add(repeating);
+        assertEquals(other, wheel.pollExpired());
+        assertNull(wheel.pollExpired());
+        assertEquals(START_TICK + 1, advanceUntilFired(wheel, repeating));
+    }
+
+    private static EventFuture schedule(TimingWheel wheel, long tick) {
+        EventFuture future = new EventFuture(null, null, tick);
+        wheel.add(future);
+        return future;
+    }
+
+    /**
+     * Turns the wheel until the given future expires and returns the tick it expired on. Fails if anything else
+     * expires first.
+     */
+    private static long advanceUntilFired(TimingWheel wheel, EventFuture future) {
+        while (true) {
+            long tick = wheel.getCurrentTick();
+            wheel.advance();
+            EventFuture expired = wheel.pollExpired();
+            if (expired != null) {
+                assertEquals(future, expired);
+                assertNull(wheel.pollExpired());
+                assertTrue(tick >= future.getScheduledExecutionTime(), "fired early on tick " + tick);
+                return tick;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.einherji.rs2world.net;
+
+import com.einherji.rs2world.net.clients.Client;
+import com.einherji.rs2world.net.clients.ClientService;
+import com.einherji.rs2world.net.packets.PacketDecoder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Connects clients to {@link Reactor}s over loopback sockets, the way the acceptor does, and stops the reactors again
+ * once the test is done. The test holds the peer end of every connection, a blocking channel that plays the game
+ * client.
+ */
+public final class LoopbackNetwork implements AutoCloseable {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final ServerSocketChannel acceptor;
+    private final List<Reactor> reactors = new ArrayList<>();
+    private final List<SocketChannel> channels = new ArrayList<>();
+
+    public LoopbackNetwork() throws IOException {
+        acceptor = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    public Reactor startReactor(ClientService clientService, PacketDecoder packetDecoder) {
+        Reactor reactor = new Reactor("test-reactor-" + reactors.size(), clientService.getBufferPool(), packetDecoder);
+        reactor.start();
+        reactors.add(reactor);
+        return reactor;
+    }
+
+    /**
+     * Opens a connection, creates a client for the accepted end and registers it with the reactor.
+     */
+    public Connection connect(ClientService clientService, Reactor reactor) throws IOException {
+        return connect(clientService, reactor, 0);
+    }
+
+    /**
+     * Opens a connection whose socket buffers are limited to the given size, so that the peer stops accepting bytes
+     * soon after it stops reading.
+     */
+    public Connection connect(ClientService clientService, Reactor reactor, int socketBufferSize) throws IOException {
+        SocketChannel peer = SocketChannel.open();
+        channels.add(peer);
+        if (socketBufferSize > 0) peer.setOption(StandardSocketOptions.SO_RCVBUF, socketBufferSize);
+        peer.connect(acceptor.getLocalAddress());
+        SocketChannel accepted = acceptor.accept();
+        channels.add(accepted);
+        if (socketBufferSize > 0) accepted.setOption(StandardSocketOptions.SO_SNDBUF, socketBufferSize);
+        accepted.configureBlocking(false);
+        Client client = clientService.create(accepted, reactor);
+        reactor.register(client);
+        return new Connection(client, peer);
+    }
+
+    /**
+     * Runs the task on the reactor's thread and waits for its result, which also makes everything the reactor did
+     * before visible to the caller.
+     */
+    public <T> T call(Reactor reactor, Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        reactor.execute(() -> {
+            try {
+                result.complete(task.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        try {
+            return result.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw new AssertionError("Reactor task did not complete", e);
+        }
+    }
+
+    /**
+     * Waits until the condition, evaluated on the reactor's thread, holds.
+     */
+    public void await(Reactor reactor, BooleanSupplier condition, String description) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!call(reactor, condition::getAsBoolean)) {
+            if (System.currentTimeMillis() > deadline) fail("Timed out waiting until " + description);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted waiting until " + description);
+            }
+        }
+    }
+
+    /**
+     * Keeps the reactor's thread busy until the returned latch is counted down, so that work handed to the reactor in
+     * the meantime piles up as pending tasks.
+     */
+    public CountDownLatch pause(Reactor reactor) {
+        CountDownLatch paused = new CountDownLatch(1);
+        CountDownLatch resumed = new CountDownLatch(1);
+        reactor.execute(() -> {
+            paused.countDown();
+            try {
+                resumed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            if (!paused.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                fail("Timed out waiting for the reactor to pause");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail("Interrupted waiting for the reactor to pause");
+        }
+        return resumed;
+    }
+
+    /**
+     * @return the amount of tasks handed to the reactor that it has not started yet
+     */
+    public int pendingTasks(Reactor reactor) {
+        return reactor.getPendingTaskCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Reactor reactor : reactors) {
+            reactor.execute(() -> Thread.currentThread().interrupt());
+        }
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+        acceptor.close();
+    }
+
+    /**
+     * @param client the client created for the accepted end of the connection
+     * @param peer   the blocking end of the connection that the test reads and writes
+     */
+    public record Connection(Client client, SocketChannel peer) {
+    }
+
+}
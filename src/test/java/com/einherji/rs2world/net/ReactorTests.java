@@ -0,0 +1,188 @@
+package com.einherji.rs2world.net;
+
+import com.einherji.rs2world.net.clients.Client;
+import com.einherji.rs2world.net.clients.ClientService;
+import com.einherji.rs2world.net.packets.Packet;
+import com.einherji.rs2world.net.packets.PacketContext;
+import com.einherji.rs2world.net.packets.PacketDecoder;
+import com.einherji.rs2world.net.util.Rs2ReadBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReactorTests {
+
+    private static final int CAPACITY = 16;
+    private static final int INITIAL_BUFFER_SIZE = 2048;
+    private static final int MAX_FRAME_SIZE = 65536;
+    private static final int HIGH_WATER_MARK = 131072;
+    private static final int PACKETS_PER_TICK = 32;
+    private static final int PACKET_THREADS = 1;
+    private static final int SMALL_SOCKET_BUFFER = 4096;
+    private static final int FRAME_SIZE = 2000;
+
+    private final Random random = new Random(6);
+
+    @Test
+    void keepsAFrameThatArrivesInSeveralReadsAndGrowsItsBuffer() throws IOException {
+        ClientService clientService = createClientService(HIGH_WATER_MARK);
+        try (LoopbackNetwork network = new LoopbackNetwork()) {
+            Reactor reactor = network.startReactor(clientService, incompleteFrameDecoder());
+            LoopbackNetwork.Connection connection = network.connect(clientService, reactor);
+            Client client = connection.client();
+
+            byte[] frame = randomBytes(5000);
+            for (int offset = 0; offset < frame.length; offset += 1000) {
+                connection.peer().write(ByteBuffer.wrap(frame, offset, 1000));
+                int received = offset + 1000;
+                network.await(reactor, () -> client.getInBuffer().getBuffer().position() == received,
+                        received + " bytes are buffered");
+            }
+
+            byte[] buffered = network.call(reactor, () -> {
+                ByteBuffer buffer = client.getInBuffer().getBuffer();
+                assertTrue(buffer.capacity() > INITIAL_BUFFER_SIZE, "buffer did not grow");
+                byte[] bytes = new byte[buffer.position()];
+                buffer.duplicate().flip().get(bytes);
+                return bytes;
+            });
+            assertArrayEquals(frame, buffered);
+        }
+    }
+
+    @Test
+    void closesAConnectionWhoseFrameOutgrowsTheLargestBuffer() throws IOException {
+        ClientService clientService = createClientService(HIGH_WATER_MARK);
+        try (LoopbackNetwork network = new LoopbackNetwork()) {
+            Reactor reactor = network.startReactor(clientService, incompleteFrameDecoder());
+            LoopbackNetwork.Connection connection = network.connect(clientService, reactor);
+            Client client = connection.client();
+
+            ByteBuffer frame = ByteBuffer.allocate(MAX_FRAME_SIZE);
+            while (frame.hasRemaining()) {
+                connection.peer().write(frame);
+            }
+            connection.peer().socket().setSoTimeout(5000);
+            assertEquals(-1, connection.peer().socket().getInputStream().read());
+            network.await(reactor, () -> reactor.getConnectionCount() == 0, "the connection is closed");
+            assertTrue(network.call(reactor, () -> client.getInBuffer() == null), "inbound buffer was not released");
+        }
+    }
+
+    @Test
+    void writesFlushedFramesInOrder() throws IOException {
+        ClientService clientService = createClientService(HIGH_WATER_MARK);
+        try (LoopbackNetwork network = new LoopbackNetwork()) {
+            Reactor reactor = network.startReactor(clientService, new PacketDecoder());
+            LoopbackNetwork.Connection connection = network.connect(clientService, reactor);
+            Client client = connection.client();
+            network.await(reactor, () -> client.getSelectionKey() != null, "the client is registered");
+
+            byte[] written = flushFrames(client, 3);
+            assertArrayEquals(written, read(connection.peer(), written.length));
+            network.await(reactor, () -> client.peekOutbound(new ByteBuffer[1]) == 0 && !hasWriteInterest(client),
+                    "the outbound queue is drained");
+        }
+    }
+
+    @Test
+    void keepsWriteInterestUntilASlowPeerCatchesUp() throws IOException {
+        ClientService clientService = createClientService(HIGH_WATER_MARK);
+        try (LoopbackNetwork network = new LoopbackNetwork()) {
+            Reactor reactor = network.startReactor(clientService, new PacketDecoder());
+            LoopbackNetwork.Connection connection = network.connect(clientService, reactor, SMALL_SOCKET_BUFFER);
+            Client client = connection.client();
+            network.await(reactor, () -> client.getSelectionKey() != null, "the client is registered");
+
+            // far more than the socket buffers hold, but less than the high-water mark
+            byte[] written = flushFrames(client, 60);
+            network.await(reactor, () -> hasWriteInterest(client) && client.peekOutbound(new ByteBuffer[1]) == 1,
+                    "a partial write registers write interest");
+
+            assertArrayEquals(written, read(connection.peer(), written.length));
+            network.await(reactor, () -> client.peekOutbound(new ByteBuffer[1]) == 0 && !hasWriteInterest(client),
+                    "write interest is dropped once the queue is drained");
+            assertFalse(client.isDisconnected());
+        }
+    }
+
+    @Test
+    void disconnectsAClientWhoseOutputPassesTheHighWaterMark() throws IOException {
+        int highWaterMark = 16384;
+        ClientService clientService = createClientService(highWaterMark);
+        try (LoopbackNetwork network = new LoopbackNetwork()) {
+            Reactor reactor = network.startReactor(clientService, new PacketDecoder());
+            LoopbackNetwork.Connection connection = network.connect(clientService, reactor, SMALL_SOCKET_BUFFER);
+            Client client = connection.client();
+            network.await(reactor, () -> client.getSelectionKey() != null, "the client is registered");
+
+            // the peer never reads, so at most the socket buffers' worth of output leaves the queue
+            for (int i = 0; i < 100 && !client.isDisconnected(); i++) {
+                flushFrames(client, 1);
+            }
+            network.await(reactor, () -> client.isDisconnected() && reactor.getConnectionCount() == 0,
+                    "the client is disconnected");
+            assertEquals(0, client.peekOutbound(new ByteBuffer[1]));
+        }
+    }
+
+    /**
+     * @return a decoder that keeps waiting for the rest of a frame, so every byte the peer sends stays buffered
+     */
+    private static PacketDecoder incompleteFrameDecoder() {
+        return new PacketDecoder() {
+            @Override
+            public Packet decode(Client client, Rs2ReadBuffer buffer) {
+                return null;
+            }
+        };
+    }
+
+    private static ClientService createClientService(int highWaterMark) {
+        return new ClientService(new PacketContext(null), null, CAPACITY, highWaterMark, PACKETS_PER_TICK,
+                PACKET_THREADS);
+    }
+
+    /**
+     * Writes and flushes frames of random bytes from the calling thread, which plays the engine.
+     *
+     * @return every byte that was flushed
+     */
+    private byte[] flushFrames(Client client, int frames) {
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        for (int i = 0; i < frames; i++) {
+            byte[] frame = randomBytes(FRAME_SIZE);
+            // writeBytes copies up to the source's position, as it does for the engine's scratch buffers
+            client.getOutBuffer().writeBytes(ByteBuffer.wrap(frame).position(frame.length));
+            client.flushOutBuffer();
+            written.writeBytes(frame);
+        }
+        return written.toByteArray();
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static boolean hasWriteInterest(Client client) {
+        return (client.getSelectionKey().interestOps() & SelectionKey.OP_WRITE) != 0;
+    }
+
+    private static byte[] read(SocketChannel peer, int length) throws IOException {
+        peer.socket().setSoTimeout(5000);
+        return peer.socket().getInputStream().readNBytes(length);
+    }
+
+}
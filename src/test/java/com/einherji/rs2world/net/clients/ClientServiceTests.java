@@ -0,0 +1,214 @@
+package com.einherji.rs2world.net.clients;
+
+import com.einherji.rs2world.net.LoopbackNetwork;
+import com.einherji.rs2world.net.Reactor;
+import com.einherji.rs2world.net.login.LoginException;
+import com.einherji.rs2world.net.login.LoginResponseCodes;
+import com.einherji.rs2world.net.packets.Packet;
+import com.einherji.rs2world.net.packets.PacketContext;
+import com.einherji.rs2world.net.packets.PacketDecoder;
+import com.einherji.rs2world.persistence.InMemoryPlayerRepository;
+import com.einherji.rs2world.persistence.PlayerSaveService;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientServiceTests {
+
+    private static final int CAPACITY = 4;
+    private static final int HIGH_WATER_MARK = 131072;
+    private static final int PACKETS_PER_TICK = 32;
+    private static final int PACKET_THREADS = 1;
+    private static final int PARALLEL_CLIENTS = 100;
+    private static final int PACKET_CAP = 5;
+
+    private final ClientService clientService = new ClientService(new PacketContext(null), null, CAPACITY,
+            HIGH_WATER_MARK, PACKETS_PER_TICK, PACKET_THREADS);
+
+    @Test
+    void givesEveryClientItsOwnSlotUntilTheRegistryIsFull() {
+        List<Client> clients = createClients(CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) {
+            assertEquals(i, clients.get(i).getIndex());
+            assertSame(clients.get(i), clientService.get(i));
+        }
+
+        LoginException full = assertThrows(LoginException.class, () -> clientService.create(null, null));
+        assertEquals(LoginResponseCodes.WORLD_FULL, full.getResponseCode());
+        assertEquals(0, clientService.getActiveCount(), "a client becomes active before the next tick");
+        clientService.registerPendingClients();
+        assertEquals(CAPACITY, clientService.getActiveCount());
+    }
+
+    @Test
+    void reusesTheSlotOfARemovedClient() {
+        List<Client> clients = createClients(CAPACITY);
+        clientService.registerPendingClients();
+
+        Client removed = clients.get(1);
+        removed.markDisconnected(clientService.getBufferPool());
+        clientService.removeDisconnectedClients();
+        assertNull(clientService.get(1));
+        assertEquals(-1, removed.getActiveIndex());
+
+        Client replacement = clientService.create(null, null);
+        assertEquals(1, replacement.getIndex());
+        assertSame(replacement, clientService.get(1));
+    }
+
+    @Test
+    void movesTheLastActiveClientIntoTheGapOfARemovedOne() {
+        List<Client> clients = createClients(CAPACITY);
+        clientService.registerPendingClients();
+        for (int i = 0; i < CAPACITY; i++) {
+            assertEquals(i, clients.get(i).getActiveIndex());
+        }
+
+        clients.get(0).markDisconnected(clientService.getBufferPool());
+        clients.get(2).markDisconnected(clientService.getBufferPool());
+        clientService.removeDisconnectedClients();
+
+        assertEquals(2, clientService.getActiveCount());
+        Client last = clients.get(3);
+        Client kept = clients.get(1);
+        assertEquals(0, last.getActiveIndex());
+        assertEquals(1, kept.getActiveIndex());
+        // registry slots do not move with the active position
+        assertEquals(3, last.getIndex());
+        assertEquals(1, kept.getIndex());
+    }
+
+    @Test
+    void sealsOneFramePerClientAndHandsThemOverInOneBatchPerReactor() throws IOException {
+        try (LoopbackNetwork network = new LoopbackNetwork()) {
+            Reactor first = network.startReactor(clientService, new PacketDecoder());
+            Reactor second = network.startReactor(clientService, new PacketDecoder());
+            List<Client> clients = List.of(
+                    network.connect(clientService, first).client(),
+                    network.connect(clientService, first).client(),
+                    network.connect(clientService, second).client());
+            for (Client client : clients) {
+                network.await(client.getReactor(), () -> client.getSelectionKey() != null, "the client is registered");
+            }
+            clientService.registerPendingClients();
+
+            CountDownLatch firstPaused = network.pause(first);
+            CountDownLatch secondPaused = network.pause(second);
+            try {
+                // several packets' worth of output per client during one tick
+                for (Client client : clients) {
+                    for (int message = 0; message < 4; message++) {
+                        client.getOutBuffer().writeInt(message);
+                    }
+                }
+                clientService.flushOutBuffers();
+
+                for (Client client : clients) {
+                    ByteBuffer[] frames = new ByteBuffer[2];
+                    assertEquals(1, client.peekOutbound(frames), "the output was not sealed into a single frame");
+                    assertEquals(16, frames[0].remaining());
+                }
+                assertEquals(1, network.pendingTasks(first), "the reactor was not handed a single batch");
+                assertEquals(1, network.pendingTasks(second), "the reactor was not handed a single batch");
+
+                // nothing was written since, so there is nothing to flush
+                clientService.flushOutBuffers();
+                assertEquals(1, network.pendingTasks(first));
+                assertEquals(1, network.pendingTasks(second));
+            } finally {
+                firstPaused.countDown();
+                secondPaused.countDown();
+            }
+
+            for (Client client : clients) {
+                network.await(client.getReactor(), () -> client.peekOutbound(new ByteBuffer[1]) == 0,
+                        "the frame is written");
+            }
+        }
+    }
+
+    @Test
+    void runsSharedPacketsOnTheEngineThreadAfterLocalPackets() {
+        ClientService clientService = new ClientService(new PacketContext(null),
+                new PlayerSaveService(new InMemoryPlayerRepository(), 100), PARALLEL_CLIENTS, 131072, PACKET_CAP, 4);
+        for (int i = 0; i < PARALLEL_CLIENTS; i++) {
+            clientService.create(null, null);
+        }
+        clientService.registerPendingClients();
+
+        Thread engineThread = Thread.currentThread();
+        List<String> shared = new ArrayList<>();
+        AtomicIntegerArray local = new AtomicIntegerArray(PARALLEL_CLIENTS);
+        int[] localBeforeShared = new int[PARALLEL_CLIENTS];
+        // every client sends local, shared, local, shared, local, shared, local
+        for (int i = 0; i < PARALLEL_CLIENTS; i++) {
+            Client client = clientService.get(i);
+            for (int sequence = 0; sequence < 7; sequence++) {
+                if (sequence % 2 == 0) {
+                    client.queuePacket(new LocalPacket(local));
+                } else {
+                    int sent = sequence;
+                    client.queuePacket((c, ctx) -> {
+                        assertTrue(Thread.currentThread() == engineThread);
+                        localBeforeShared[c.getIndex()] = local.get(c.getIndex());
+                        shared.add(c.getIndex() + ":" + sent);
+                    });
+                }
+            }
+        }
+
+        // the cap covers the first five packets: three local and two shared
+        clientService.executeQueuedPackets();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < PARALLEL_CLIENTS; i++) {
+            assertEquals(3, local.get(i));
+            assertEquals(3, localBeforeShared[i]);
+            expected.add(i + ":1");
+            expected.add(i + ":3");
+        }
+        assertEquals(expected, shared);
+
+        shared.clear();
+        expected.clear();
+        clientService.executeQueuedPackets();
+        for (int i = 0; i < PARALLEL_CLIENTS; i++) {
+            assertEquals(4, local.get(i));
+            expected.add(i + ":5");
+        }
+        assertEquals(expected, shared);
+        clientService.shutdown();
+    }
+
+    private List<Client> createClients(int amount) {
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < amount; i++) {
+            clients.add(clientService.create(null, null));
+        }
+        return clients;
+    }
+
+    private record LocalPacket(AtomicIntegerArray executed) implements Packet {
+
+        @Override
+        public void execute(Client client, PacketContext ctx) {
+            executed.incrementAndGet(client.getIndex());
+        }
+
+        @Override
+        public boolean isPlayerLocal() {
+            return true;
+        }
+    }
+
+}
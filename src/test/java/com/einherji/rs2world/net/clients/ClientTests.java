@@ -0,0 +1,78 @@
+package com.einherji.rs2world.net.clients;
+
+import com.einherji.rs2world.net.util.DirectBufferPool;
+import com.einherji.rs2world.net.util.Rs2Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientTests {
+
+    private static final int HIGH_WATER_MARK = 131072;
+
+    private final DirectBufferPool pool = new DirectBufferPool(2048, 65536, 1 << 20);
+    // the reactor is only needed to disconnect, which these tests stay clear of
+    private final Client client = new Client(null, null, Rs2Buffer.createWriteBuffer(pool), HIGH_WATER_MARK);
+
+    @Test
+    void sealsNothingWhenNothingWasWritten() {
+        assertFalse(client.sealOutBuffer());
+        assertEquals(0, client.peekOutbound(new ByteBuffer[1]));
+    }
+
+    @Test
+    void schedulesOneWritePerDrainCycle() {
+        write(3);
+        assertTrue(client.sealOutBuffer(), "the first frame did not schedule a write");
+        write(5);
+        assertFalse(client.sealOutBuffer(), "a second write was scheduled while the first was pending");
+
+        ByteBuffer[] frames = new ByteBuffer[4];
+        assertEquals(2, client.peekOutbound(frames));
+        assertEquals(3, frames[0].remaining());
+        assertEquals(5, frames[1].remaining());
+
+        // the socket took the first frame only
+        frames[0].position(frames[0].limit());
+        assertFalse(client.removeWritten(pool));
+        assertEquals(1, client.peekOutbound(frames));
+        write(2);
+        assertFalse(client.sealOutBuffer(), "a write was scheduled while the queue was still draining");
+
+        ByteBuffer[] remaining = new ByteBuffer[4];
+        assertEquals(2, client.peekOutbound(remaining));
+        for (int i = 0; i < 2; i++) {
+            remaining[i].position(remaining[i].limit());
+        }
+        assertTrue(client.removeWritten(pool));
+        assertEquals(0, client.peekOutbound(remaining));
+
+        write(1);
+        assertTrue(client.sealOutBuffer(), "the first frame of the next drain cycle did not schedule a write");
+    }
+
+    @Test
+    void dropsOutputOnceDisconnected() {
+        write(3);
+        assertTrue(client.sealOutBuffer());
+        assertTrue(client.markDisconnected(pool));
+        assertFalse(client.markDisconnected(pool));
+        assertEquals(0, client.peekOutbound(new ByteBuffer[1]));
+
+        write(3);
+        assertFalse(client.sealOutBuffer());
+        assertEquals(0, client.peekOutbound(new ByteBuffer[1]));
+        assertEquals(0, client.getOutBuffer().getBuffer().position());
+    }
+
+    private void write(int bytes) {
+        for (int i = 0; i < bytes; i++) {
+            client.getOutBuffer().writeByte(i);
+        }
+    }
+
+}
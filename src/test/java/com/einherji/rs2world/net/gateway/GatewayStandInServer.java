@@ -0,0 +1,117 @@
+package com.einherji.rs2world.net.gateway;
+
+import com.einherji.rs2world.net.login.LoginResponseCodes;
+import com.einherji.rs2world.net.util.Rs2Buffer;
+import com.einherji.rs2world.net.util.Rs2ReadBuffer;
+import com.einherji.rs2world.net.util.Rs2WriteBuffer;
+import com.einherji.rs2world.persistence.PlayerSnapshotCodec;
+import com.einherji.rs2world.player.Player;
+import com.einherji.rs2world.player.PlayerSnapshot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A minimal gateway server for tests and benchmarks. Every password except "wrong" is accepted. Requests that arrive
+ * together are answered together in reverse order, so clients only pass if they match responses by correlation id.
+ */
+class GatewayStandInServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicInteger largestBatch = new AtomicInteger();
+
+    GatewayStandInServer() throws IOException {
+        serverSocket = new ServerSocket(0);
+        Thread acceptor = new Thread(this::accept, "gateway-stand-in");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the most requests that were read in one go, which is above one once requests are pipelined
+     */
+    int getLargestBatch() {
+        return largestBatch.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread connection = new Thread(() -> serve(socket), "gateway-stand-in-connection");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            List<byte[]> responses = new ArrayList<>();
+            while (true) {
+                do {
+                    byte[] frame = new byte[in.readInt()];
+                    in.readFully(frame);
+                    responses.add(handle(ByteBuffer.wrap(frame)));
+                } while (in.available() > 0);
+                largestBatch.accumulateAndGet(responses.size(), Math::max);
+                for (int i = responses.size() - 1; i >= 0; i--) {
+                    out.writeInt(responses.get(i).length);
+                    out.write(responses.get(i));
+                }
+                out.flush();
+                responses.clear();
+            }
+        } catch (IOException e) {
+            // connection closed
+        }
+    }
+
+    private byte[] handle(ByteBuffer frame) {
+        int correlationId = frame.getInt();
+        int opcode = frame.get();
+        Rs2WriteBuffer response = Rs2Buffer.createWriteBuffer(ByteBuffer.allocate(256));
+        response.writeInt(correlationId);
+        if (opcode == RemoteGateway.LOGIN_OPCODE) {
+            Rs2ReadBuffer request = Rs2Buffer.createReadBuffer(frame);
+            String username = request.readString();
+            String password = request.readString();
+            if (password.equals("wrong")) {
+                response.writeByte(LoginResponseCodes.INVALID_CREDENTIALS);
+            } else {
+                response.writeByte(LoginResponseCodes.LOGIN_OK);
+                PlayerSnapshotCodec.encode(response, new PlayerSnapshot(nextId.getAndIncrement(), username, "",
+                        0, Player.SPAWN_X, Player.SPAWN_Y, Player.SPAWN_Z));
+            }
+        } else {
+            response.writeByte(LoginResponseCodes.COULD_NOT_COMPLETE_LOGIN);
+        }
+        ByteBuffer buffer = response.getBuffer().flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.einherji.rs2world.net.gateway;
+
+import com.einherji.rs2world.net.login.LoginCredentials;
+import com.einherji.rs2world.net.login.LoginResponse;
+import com.einherji.rs2world.net.login.LoginResponseCodes;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RemoteGatewayTests {
+
+    @Test
+    void matchesPipelinedResponsesToTheirRequests() throws Exception {
+        try (GatewayStandInServer server = new GatewayStandInServer();
+             RemoteGateway gateway = new RemoteGateway("localhost", server.getPort(), 5000)) {
+            gateway.start();
+            ExecutorService logins = Executors.newFixedThreadPool(32);
+            List<Future<LoginResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < 256; i++) {
+                LoginCredentials credentials = credentials("player" + i, i % 16 == 0 ? "wrong" : "hunter2");
+                responses.add(logins.submit(() -> gateway.login(credentials)));
+            }
+            for (int i = 0; i < responses.size(); i++) {
+                LoginResponse response = responses.get(i).get();
+                if (i % 16 == 0) {
+                    assertEquals(LoginResponseCodes.INVALID_CREDENTIALS, response.responseCode());
+                } else {
+                    assertTrue(response.isSuccessful());
+                    assertEquals("player" + i, response.player().getUsername());
+                }
+            }
+            logins.shutdown();
+            assertEquals(0, gateway.getInFlightCount());
+            assertTrue(server.getLargestBatch() > 1);
+        }
+    }
+
+    @Test
+    void reportsTheLoginServerOfflineWhenUnreachable() throws Exception {
+        int port;
+        try (ServerSocket unused = new ServerSocket(0)) {
+            port = unused.getLocalPort();
+        }
+        try (RemoteGateway gateway = new RemoteGateway("localhost", port, 500)) {
+            gateway.start();
+            LoginResponse response = gateway.login(credentials("mopar", "hunter2"));
+            assertEquals(LoginResponseCodes.LOGIN_SERVER_OFFLINE, response.responseCode());
+        }
+    }
+
+    @Test
+    void dropsRequestsThatTimeOut() throws Exception {
+        // the listening socket completes connections in its backlog but never reads or answers
+        try (ServerSocket silent = new ServerSocket(0);
+             RemoteGateway gateway = new RemoteGateway("localhost", silent.getLocalPort(), 200)) {
+            gateway.start();
+            for (int i = 0; i < 8; i++) {
+                LoginResponse response = gateway.login(credentials("player" + i, "hunter2"));
+                assertEquals(LoginResponseCodes.LOGIN_SERVER_OFFLINE, response.responseCode());
+            }
+            assertEquals(0, gateway.getInFlightCount());
+        }
+    }
+
+    private static LoginCredentials credentials(String username, String password) {
+        return new LoginCredentials(false, 317, false, 0L, 0L, 0, username, password);
+    }
+
+}
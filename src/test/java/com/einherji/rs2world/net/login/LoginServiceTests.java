@@ -0,0 +1,271 @@
+package com.einherji.rs2world.net.login;
+
+import com.einherji.rs2world.net.LoopbackNetwork;
+import com.einherji.rs2world.net.Reactor;
+import com.einherji.rs2world.net.clients.Client;
+import com.einherji.rs2world.net.clients.ClientService;
+import com.einherji.rs2world.net.clients.ClientStatus;
+import com.einherji.rs2world.net.gateway.Gateway;
+import com.einherji.rs2world.net.packets.PacketContext;
+import com.einherji.rs2world.net.packets.PacketDecoder;
+import com.einherji.rs2world.net.util.Rs2Buffer;
+import com.einherji.rs2world.net.util.Rs2WriteBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class LoginServiceTests {
+
+    private static final int LOGIN_TYPE_NEW = 16;
+    private static final long CLIENT_SESSION_KEY = 0x1122334455667788L;
+    private static final long SERVER_SESSION_KEY = 0x0102030405060708L;
+    private static final long TIMEOUT_MILLIS = 5000;
+    private static final int CAPACITY = 8;
+    private static final int HIGH_WATER_MARK = 131072;
+    private static final int PACKETS_PER_TICK = 32;
+    private static final int PACKET_THREADS = 1;
+    private static final int LOGINS_PER_TICK = 2;
+    private static final int MAX_WAITING = 3;
+    private static final double MIN_TICK_HEADROOM = 0.2;
+    private static final double LOW_HEADROOM = 0.1;
+    private static final double HIGH_HEADROOM = 0.9;
+
+    private final Thread engineThread = Thread.currentThread();
+    private final ClientService clientService = new ClientService(new PacketContext(null), null, CAPACITY,
+            HIGH_WATER_MARK, PACKETS_PER_TICK, PACKET_THREADS);
+
+    @Test
+    void runsTheLoginOffTheEngineThreadAndAdmitsItOnTheEngineThread() throws InterruptedException {
+        BlockingGateway gateway = new BlockingGateway();
+        LoginService loginService =
+                new LoginService(new LoginDecoder(""), gateway, LOGINS_PER_TICK, MAX_WAITING, MIN_TICK_HEADROOM);
+        Client client = loggingInClient();
+
+        loginService.submit(client, LOGIN_TYPE_NEW, loginBlock("player", "secret"));
+        assertTrue(gateway.entered.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), "the gateway was never asked");
+        assertNotSame(engineThread, gateway.caller);
+        assertTrue(gateway.caller.getName().startsWith("rs2-login-"), "the login ran outside the pipeline");
+        assertEquals("player", gateway.credentials.username());
+        assertEquals("secret", gateway.credentials.password());
+
+        // the engine keeps ticking while the gateway blocks
+        loginService.admitCompletedLogins(HIGH_HEADROOM);
+        assertEquals(ClientStatus.LOGGING_IN, client.getStatus());
+        assertEquals(0, client.getOutBuffer().getBuffer().position());
+
+        gateway.release.countDown();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (client.getStatus() != ClientStatus.LOGGED_IN) {
+            if (System.currentTimeMillis() > deadline) fail("The completed login was never posted back");
+            Thread.sleep(5);
+            loginService.admitCompletedLogins(HIGH_HEADROOM);
+        }
+
+        assertNotNull(client.getInCipher());
+        assertNotNull(client.getOutCipher());
+        ByteBuffer out = client.getOutBuffer().getBuffer();
+        byte[] response = new byte[out.position()];
+        out.duplicate().flip().get(response);
+        assertArrayEquals(new byte[]{LoginResponseCodes.LOGIN_OK, 2, 0}, response);
+    }
+
+    @Test
+    void admitsAtMostTheConfiguredAmountOfLoginsPerTick() throws IOException {
+        try (LoopbackNetwork network = new LoopbackNetwork()) {
+            Reactor reactor = network.startReactor(clientService, new PacketDecoder());
+            LoginService loginService = synchronousLoginService(LoginResponseCodes.LOGIN_OK);
+            List<LoopbackNetwork.Connection> connections = connect(network, reactor, 3);
+            connections.forEach(connection -> submit(loginService, connection.client()));
+
+            loginService.admitCompletedLogins(HIGH_HEADROOM);
+            assertStatuses(connections, ClientStatus.LOGGED_IN, ClientStatus.LOGGED_IN, ClientStatus.LOGGING_IN);
+            assertEquals(1, loginService.getWaitingLoginCount());
+
+            loginService.admitCompletedLogins(HIGH_HEADROOM);
+            assertStatuses(connections, ClientStatus.LOGGED_IN, ClientStatus.LOGGED_IN, ClientStatus.LOGGED_IN);
+            assertEquals(0, loginService.getWaitingLoginCount());
+        }
+    }
+
+    @Test
+    void keepsQueueingSuccessfulLoginsWhileAdmissionIsPaused() throws IOException {
+        try (LoopbackNetwork network = new LoopbackNetwork()) {
+            Reactor reactor = network.startReactor(clientService, new PacketDecoder());
+            LoginService loginService = synchronousLoginService(LoginResponseCodes.LOGIN_OK);
+            List<LoopbackNetwork.Connection> connections = connect(network, reactor, MAX_WAITING);
+            connections.forEach(connection -> submit(loginService, connection.client()));
+
+            loginService.admitCompletedLogins(LOW_HEADROOM);
+            loginService.admitCompletedLogins(LOW_HEADROOM);
+            assertEquals(MAX_WAITING, loginService.getWaitingLoginCount());
+            assertStatuses(connections, ClientStatus.LOGGING_IN, ClientStatus.LOGGING_IN, ClientStatus.LOGGING_IN);
+            for (LoopbackNetwork.Connection connection : connections) {
+                assertFalse(connection.client().isDisconnected(), "a waiting login was turned away");
+            }
+
+            loginService.admitCompletedLogins(HIGH_HEADROOM);
+            assertStatuses(connections, ClientStatus.LOGGED_IN, ClientStatus.LOGGED_IN, ClientStatus.LOGGING_IN);
+        }
+    }
+
+    @Test
+    void turnsLoginsAwayOnlyOnceTheWaitingQueueIsFull() throws IOException {
+        try (LoopbackNetwork network = new LoopbackNetwork()) {
+            Reactor reactor = network.startReactor(clientService, new PacketDecoder());
+            LoginService loginService = synchronousLoginService(LoginResponseCodes.LOGIN_OK);
+            connect(network, reactor, MAX_WAITING).forEach(connection -> submit(loginService, connection.client()));
+            loginService.admitCompletedLogins(LOW_HEADROOM);
+            assertEquals(MAX_WAITING, loginService.getWaitingLoginCount());
+
+            LoopbackNetwork.Connection underPressure = connect(network, reactor, 1).get(0);
+            submit(loginService, underPressure.client());
+            loginService.admitCompletedLogins(LOW_HEADROOM);
+            assertRejected(network, underPressure, LoginResponseCodes.PLEASE_TRY_AGAIN);
+
+            // the queue is only checked before this tick's admissions make room
+            LoopbackNetwork.Connection overLimit = connect(network, reactor, 1).get(0);
+            submit(loginService, overLimit.client());
+            loginService.admitCompletedLogins(HIGH_HEADROOM);
+            assertRejected(network, overLimit, LoginResponseCodes.LOGIN_LIMIT_EXCEEDED);
+            assertEquals(MAX_WAITING - LOGINS_PER_TICK, loginService.getWaitingLoginCount());
+        }
+    }
+
+    @Test
+    void answersFailedLoginsRightAwayEvenUnderPressure() throws IOException {
+        try (LoopbackNetwork network = new LoopbackNetwork()) {
+            Reactor reactor = network.startReactor(clientService, new PacketDecoder());
+            LoginService loginService = synchronousLoginService(LoginResponseCodes.INVALID_CREDENTIALS);
+            LoopbackNetwork.Connection connection = connect(network, reactor, 1).get(0);
+            submit(loginService, connection.client());
+
+            loginService.admitCompletedLogins(LOW_HEADROOM);
+            assertRejected(network, connection, LoginResponseCodes.INVALID_CREDENTIALS);
+            assertEquals(0, loginService.getWaitingLoginCount());
+        }
+    }
+
+    /**
+     * @return a login service whose gateway answers every login with the response code, and which processes logins on
+     * the submitting thread, so every submission has completed once it returns
+     */
+    private static LoginService synchronousLoginService(byte responseCode) {
+        Gateway gateway = credentials -> new LoginResponse(responseCode, 0, false, null);
+        return new LoginService(new LoginDecoder(""), gateway, Runnable::run, LOGINS_PER_TICK, MAX_WAITING,
+                MIN_TICK_HEADROOM);
+    }
+
+    private List<LoopbackNetwork.Connection> connect(LoopbackNetwork network, Reactor reactor, int amount)
+            throws IOException {
+        List<LoopbackNetwork.Connection> connections = new ArrayList<>();
+        for (int i = 0; i < amount; i++) {
+            LoopbackNetwork.Connection connection = network.connect(clientService, reactor);
+            Client client = connection.client();
+            network.await(client.getReactor(), () -> client.getSelectionKey() != null, "the client is registered");
+            client.setServerSessionKey(SERVER_SESSION_KEY);
+            client.setStatus(ClientStatus.LOGGING_IN);
+            connections.add(connection);
+        }
+        return connections;
+    }
+
+    private static void submit(LoginService loginService, Client client) {
+        loginService.submit(client, LOGIN_TYPE_NEW, loginBlock("player", "secret"));
+    }
+
+    private static void assertStatuses(List<LoopbackNetwork.Connection> connections, ClientStatus... expected) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], connections.get(i).client().getStatus(), "status of login " + i);
+        }
+    }
+
+    /**
+     * Asserts that the peer receives nothing but the response code before the connection is closed.
+     */
+    private static void assertRejected(LoopbackNetwork network, LoopbackNetwork.Connection connection, byte code)
+            throws IOException {
+        connection.peer().socket().setSoTimeout((int) TIMEOUT_MILLIS);
+        InputStream in = connection.peer().socket().getInputStream();
+        assertEquals(code, in.read());
+        assertEquals(-1, in.read());
+        Client client = connection.client();
+        network.await(client.getReactor(), client::isDisconnected, "the rejected client is disconnected");
+    }
+
+    private static Client loggingInClient() {
+        Client client = new Client(null, null, Rs2Buffer.createWriteBuffer(ByteBuffer.allocate(64)), 0);
+        client.setServerSessionKey(SERVER_SESSION_KEY);
+        client.setStatus(ClientStatus.LOGGING_IN);
+        return client;
+    }
+
+    /**
+     * @return a login block the way a 317 client sends it, without the login type and length header
+     */
+    private static byte[] loginBlock(String username, String password) {
+        Rs2WriteBuffer secureBlock = Rs2Buffer.createWriteBuffer(ByteBuffer.allocate(128));
+        secureBlock.writeByte(10);
+        secureBlock.writeLong(CLIENT_SESSION_KEY);
+        secureBlock.writeLong(SERVER_SESSION_KEY);
+        secureBlock.writeInt(0);
+        secureBlock.writeString(username);
+        secureBlock.writeString(password);
+        // no RSA key is configured, so the secure block travels in plaintext
+        byte[] secure = toArray(secureBlock);
+
+        Rs2WriteBuffer block = Rs2Buffer.createWriteBuffer(ByteBuffer.allocate(256));
+        block.writeByte(255);
+        block.writeShort(317);
+        block.writeByte(0);
+        for (int i = 0; i < 9; i++) block.writeInt(0); //archive CRCs
+        block.writeByte(secure.length);
+        block.writeBytes(ByteBuffer.wrap(secure).position(secure.length));
+        return toArray(block);
+    }
+
+    private static byte[] toArray(Rs2WriteBuffer buffer) {
+        ByteBuffer bytes = buffer.getBuffer().flip();
+        byte[] array = new byte[bytes.remaining()];
+        bytes.get(array);
+        return array;
+    }
+
+    /**
+     * A gateway that stands in for a slow login server: every login blocks until the test releases it.
+     */
+    private static final class BlockingGateway implements Gateway {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile Thread caller;
+        private volatile LoginCredentials credentials;
+
+        @Override
+        public LoginResponse login(LoginCredentials credentials) {
+            this.caller = Thread.currentThread();
+            this.credentials = credentials;
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new LoginResponse(LoginResponseCodes.LOGIN_OK, 2, false, null);
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.einherji.rs2world.net.login;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordServiceTests {
+
+    private static final int ITERATIONS = 1000;
+    private static final long SESSION_CACHE_SECONDS = 300;
+
+    private final ThreadPoolExecutor workers = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1));
+    private final AtomicLong now = new AtomicLong();
+    private final PasswordService passwordService =
+            new PasswordService(ITERATIONS, SESSION_CACHE_SECONDS, workers, now::get);
+
+    @Test
+    void verifiesTheHashedPasswordOnly() {
+        String hash = passwordService.hash("hunter2");
+        assertTrue(hash.startsWith("pbkdf2-sha256$" + ITERATIONS + "$"));
+        assertNotEquals(hash, passwordService.hash("hunter2"));
+
+        assertTrue(passwordService.verify("mopar", "hunter2", hash));
+        assertFalse(passwordService.verify("zezima", "hunter3", hash));
+        assertFalse(passwordService.verify("zezima", "hunter2", "md5$" + hash));
+        assertFalse(passwordService.verify("zezima", "hunter2", "pbkdf2-sha256$1000$c2FsdA=="));
+    }
+
+    @Test
+    void rejectsCorruptStoredHashes() {
+        String[] parts = passwordService.hash("hunter2").split("\\$");
+        assertFalse(passwordService.verify("mopar", "hunter2", parts[0] + "$many$" + parts[2] + "$" + parts[3]));
+        assertFalse(passwordService.verify("mopar", "hunter2", parts[0] + "$0$" + parts[2] + "$" + parts[3]));
+        assertFalse(passwordService.verify("mopar", "hunter2", parts[0] + "$" + parts[1] + "$!!$" + parts[3]));
+        assertFalse(passwordService.verify("mopar", "hunter2", parts[0] + "$" + parts[1] + "$$" + parts[3]));
+        assertFalse(passwordService.verify("mopar", "hunter2", parts[0] + "$" + parts[1] + "$" + parts[2] + "$%"));
+        assertTrue(passwordService.verify("mopar", "hunter2", String.join("$", parts)));
+    }
+
+    @Test
+    void refusesHashesWhileTheQueueIsFull() throws InterruptedException {
+        String hash = passwordService.hash("hunter2");
+        // one hash occupies the only worker and another one waits in the queue
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        workers.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        started.await();
+        CountDownLatch dequeued = new CountDownLatch(1);
+        workers.execute(dequeued::countDown);
+
+        LoginException e = assertThrows(LoginException.class, () -> passwordService.verify("mopar", "hunter2", hash));
+        assertEquals(LoginResponseCodes.LOGIN_ATTEMPTS_EXCEEDED, e.getResponseCode());
+        assertThrows(LoginException.class, () -> passwordService.hash("hunter2"));
+
+        release.countDown();
+        dequeued.await();
+        assertTrue(passwordService.verify("mopar", "hunter2", hash));
+        workers.shutdown();
+        assertTrue(workers.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void skipsTheHashForRecentlyVerifiedSessions() {
+        String hash = passwordService.hash("hunter2");
+        assertTrue(passwordService.verify("mopar", "hunter2", hash));
+        long hashes = workers.getTaskCount();
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(SESSION_CACHE_SECONDS) - 1);
+        assertTrue(passwordService.verify("Mopar", "hunter2", hash));
+        assertEquals(hashes, workers.getTaskCount());
+
+        assertFalse(passwordService.verify("mopar", "hunter3", hash));
+        assertEquals(hashes + 1, workers.getTaskCount());
+
+        String changed = passwordService.hash("hunter3");
+        assertTrue(passwordService.verify("mopar", "hunter3", changed));
+        assertFalse(passwordService.verify("mopar", "hunter2", changed));
+        assertEquals(hashes + 4, workers.getTaskCount());
+    }
+
+    @Test
+    void hashesAgainOnceTheSessionExpired() {
+        String hash = passwordService.hash("hunter2");
+        assertTrue(passwordService.verify("mopar", "hunter2", hash));
+        long hashes = workers.getTaskCount();
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(SESSION_CACHE_SECONDS));
+        assertTrue(passwordService.verify("mopar", "hunter2", hash));
+        assertEquals(hashes + 1, workers.getTaskCount());
+        assertTrue(passwordService.verify("mopar", "hunter2", hash));
+        assertEquals(hashes + 1, workers.getTaskCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
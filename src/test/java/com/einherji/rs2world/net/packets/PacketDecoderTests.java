@@ -0,0 +1,159 @@
+package com.einherji.rs2world.net.packets;
+
+import com.einherji.rs2world.net.clients.Client;
+import com.einherji.rs2world.net.clients.ClientStatus;
+import com.einherji.rs2world.net.packets.impl.FocusChangePacketBuilder;
+import com.einherji.rs2world.net.util.Rs2Buffer;
+import com.einherji.rs2world.net.util.Rs2ReadBuffer;
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PacketDecoderTests {
+
+    private static final int FOCUS = FocusChangePacketBuilder.OPCODE;
+    private static final int VAR_BYTE_OPCODE = 164;
+    private static final int VAR_SHORT_OPCODE = 200;
+    private static final int EMPTY_OPCODE = 0;
+
+    /**
+     * Focus changes to false, true and false, separated by frames without a builder: a variable byte frame, a
+     * variable short frame that is longer than a byte could describe, and an empty frame.
+     */
+    private static final byte[] STREAM = stream();
+
+    @Test
+    void decodesFramesThatArriveInOneRead() {
+        assertEquals(List.of(false, true, false), decodeInChunks(STREAM.length));
+    }
+
+    @Test
+    void decodesFramesThatAreSplitAcrossReads() {
+        for (int chunkSize = 1; chunkSize < 8; chunkSize++) {
+            assertEquals(List.of(false, true, false), decodeInChunks(chunkSize));
+        }
+    }
+
+    @Test
+    void keepsThePendingFrameOnTheClientUntilItIsComplete() {
+        Client client = loggedInClient();
+        PacketDecoder decoder = decoder();
+        ByteBuffer bytes = ByteBuffer.allocate(1024);
+        Rs2ReadBuffer buffer = Rs2Buffer.createReadBuffer(bytes);
+
+        bytes.put((byte) VAR_SHORT_OPCODE).put((byte) 1).flip();
+        assertNull(decoder.decode(client, buffer));
+        assertEquals(VAR_SHORT_OPCODE, client.getPendingOpcode());
+        assertEquals(PacketDecoder.VAR_SHORT, client.getPendingLength());
+        assertEquals(1, bytes.remaining());
+
+        bytes.compact().put((byte) 0x2c).put(new byte[299]).flip();
+        assertNull(decoder.decode(client, buffer));
+        assertEquals(VAR_SHORT_OPCODE, client.getPendingOpcode());
+        assertEquals(300, client.getPendingLength());
+        assertEquals(299, bytes.remaining());
+
+        bytes.compact().put((byte) 0).put((byte) FOCUS).put((byte) 0).flip();
+        Packet packet = decoder.decode(client, buffer);
+        packet.execute(client, null);
+        assertFalse(client.isFocused());
+        assertEquals(-1, client.getPendingOpcode());
+        assertEquals(-1, client.getPendingLength());
+        assertEquals(0, bytes.remaining());
+    }
+
+    @Test
+    void decodesWithoutAllocatingOnceThePoolIsWarm() {
+        Client client = loggedInClient();
+        PacketDecoder decoder = decoder();
+        ByteBuffer bytes = ByteBuffer.allocate(1024);
+        Rs2ReadBuffer buffer = Rs2Buffer.createReadBuffer(bytes);
+        bytes.put((byte) FOCUS).put((byte) 1).flip();
+        Packet warm = decoder.decode(client, buffer);
+        ((PooledPacket) warm).recycle();
+
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int decodes = 10_000;
+        boolean reused = true;
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < decodes; i++) {
+            bytes.clear().put((byte) FOCUS).put((byte) (i & 1)).flip();
+            Packet packet = decoder.decode(client, buffer);
+            reused &= packet == warm;
+            packet.execute(client, null);
+            ((PooledPacket) packet).recycle();
+        }
+        allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+
+        assertTrue(reused, "a packet was not taken from the pool");
+        assertTrue(allocated < decodes, allocated + " bytes were allocated for " + decodes + " decodes");
+    }
+
+    /**
+     * Feeds the stream to the decoder the way a reactor does: read a chunk, decode every complete frame and compact
+     * the rest for the next read.
+     *
+     * @return the focus states of the decoded packets
+     */
+    private static List<Boolean> decodeInChunks(int chunkSize) {
+        Client client = loggedInClient();
+        PacketDecoder decoder = decoder();
+        ByteBuffer bytes = ByteBuffer.allocate(1024);
+        Rs2ReadBuffer buffer = Rs2Buffer.createReadBuffer(bytes);
+        List<Boolean> focus = new ArrayList<>();
+        for (int offset = 0; offset < STREAM.length; offset += chunkSize) {
+            bytes.put(STREAM, offset, Math.min(chunkSize, STREAM.length - offset));
+            bytes.flip();
+            Packet packet;
+            while ((packet = decoder.decode(client, buffer)) != null) {
+                packet.execute(client, null);
+                focus.add(client.isFocused());
+            }
+            bytes.compact();
+        }
+        assertEquals(0, bytes.position());
+        assertEquals(-1, client.getPendingOpcode());
+        return focus;
+    }
+
+    private static PacketDecoder decoder() {
+        int[] sizes = new int[256];
+        sizes[FOCUS] = 1;
+        sizes[VAR_BYTE_OPCODE] = PacketDecoder.VAR_BYTE;
+        sizes[VAR_SHORT_OPCODE] = PacketDecoder.VAR_SHORT;
+        return new PacketDecoder(sizes);
+    }
+
+    private static Client loggedInClient() {
+        Client client = new Client(null, null, null, 0);
+        client.setStatus(ClientStatus.LOGGED_IN);
+        return client;
+    }
+
+    private static byte[] stream() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(VAR_BYTE_OPCODE);
+        out.write(3);
+        out.writeBytes(new byte[]{1, 2, 3});
+        out.writeBytes(new byte[]{FOCUS, 0});
+        out.write(VAR_SHORT_OPCODE);
+        out.write(300 >> 8);
+        out.write(300 & 0xff);
+        out.writeBytes(new byte[300]);
+        out.writeBytes(new byte[]{FOCUS, 1});
+        out.write(EMPTY_OPCODE);
+        out.writeBytes(new byte[]{FOCUS, 0});
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.einherji.rs2world.net.packets;
+
+import com.einherji.rs2world.net.clients.Client;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PacketPoolTests {
+
+    private final List<TestPacket> created = new ArrayList<>();
+
+    @Test
+    void reusesARecycledPacketAfterResettingIt() {
+        PacketPool<TestPacket> pool = new PacketPool<>(this::create);
+        TestPacket packet = pool.acquire();
+        packet.payload = "decoded";
+
+        packet.recycle();
+        assertNull(packet.payload, "the packet was not reset");
+        assertSame(packet, pool.acquire());
+        assertEquals(1, created.size());
+    }
+
+    @Test
+    void createsPacketsWhileNoneAreIdle() {
+        PacketPool<TestPacket> pool = new PacketPool<>(this::create);
+        TestPacket first = pool.acquire();
+        TestPacket second = pool.acquire();
+        assertNotSame(first, second);
+        assertEquals(2, created.size());
+
+        first.recycle();
+        second.recycle();
+        // oldest first, so both idle packets come back before a new one is created
+        assertSame(first, pool.acquire());
+        assertSame(second, pool.acquire());
+        pool.acquire();
+        assertEquals(3, created.size());
+    }
+
+    @Test
+    void dropsPacketsRecycledIntoAFullPool() {
+        PacketPool<TestPacket> pool = new PacketPool<>(2, this::create);
+        List<TestPacket> packets = List.of(pool.acquire(), pool.acquire(), pool.acquire());
+        packets.forEach(PooledPacket::recycle);
+
+        assertSame(packets.get(0), pool.acquire());
+        assertSame(packets.get(1), pool.acquire());
+        assertEquals(3, created.size());
+        pool.acquire();
+        assertEquals(4, created.size(), "the packet recycled into the full pool was kept");
+    }
+
+    private TestPacket create(PacketPool<TestPacket> pool) {
+        TestPacket packet = new TestPacket(pool);
+        created.add(packet);
+        return packet;
+    }
+
+    private static final class TestPacket extends PooledPacket {
+
+        private String payload;
+
+        TestPacket(PacketPool<?> pool) {
+            super(pool);
+        }
+
+        @Override
+        public void execute(Client client, PacketContext ctx) {
+        }
+
+        @Override
+        protected void reset() {
+            payload = null;
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.einherji.rs2world.net.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectBufferPoolTests {
+
+    private static final int MIN_SIZE = 2048;
+    private static final int MAX_SIZE = 65536;
+
+    private final DirectBufferPool pool = new DirectBufferPool(MIN_SIZE, MAX_SIZE, 1 << 20);
+
+    @Test
+    void roundsRequestsUpToTheirSizeClass() {
+        assertEquals(MIN_SIZE, pool.acquire().capacity());
+        assertEquals(MIN_SIZE, pool.acquire(1).capacity());
+        assertEquals(MIN_SIZE, pool.acquire(MIN_SIZE).capacity());
+        assertEquals(4096, pool.acquire(MIN_SIZE + 1).capacity());
+        assertEquals(8192, pool.acquire(5000).capacity());
+        assertEquals(MAX_SIZE, pool.acquire(MAX_SIZE - 1).capacity());
+        assertEquals(MAX_SIZE, pool.acquire(MAX_SIZE).capacity());
+        assertTrue(pool.acquire(5000).isDirect());
+    }
+
+    @Test
+    void reusesReleasedBuffersCleared() {
+        ByteBuffer first = pool.acquire(3000);
+        first.putInt(42).flip();
+        pool.release(first);
+
+        ByteBuffer second = pool.acquire(4000);
+        assertSame(first, second, "the released buffer was not reused");
+        assertEquals(0, second.position());
+        assertEquals(second.capacity(), second.limit());
+
+        assertNotSame(second, pool.acquire(4000), "a leased buffer was handed out twice");
+    }
+
+    @Test
+    void servesRequestsAboveTheLargestSizeClassWithoutPooling() {
+        ByteBuffer large = pool.acquire(MAX_SIZE + 1);
+        assertEquals(MAX_SIZE + 1, large.capacity());
+        assertTrue(large.isDirect());
+        pool.release(large);
+        assertNotSame(large, pool.acquire(MAX_SIZE + 1), "an oversized buffer was pooled");
+    }
+
+    @Test
+    void ignoresBuffersThatDoNotMatchASizeClass() {
+        ByteBuffer heap = ByteBuffer.allocate(MIN_SIZE);
+        ByteBuffer odd = ByteBuffer.allocateDirect(3000);
+        pool.release(heap);
+        pool.release(odd);
+        pool.release(null);
+        ByteBuffer acquired = pool.acquire(3000);
+        assertFalse(acquired == heap || acquired == odd, "a foreign buffer was pooled");
+    }
+
+    @Test
+    void growsAcrossSizeClassesKeepingTheContent() {
+        Rs2WriteBuffer buffer = Rs2Buffer.createWriteBuffer(pool);
+        ByteBuffer initial = buffer.getBuffer();
+        assertEquals(MIN_SIZE, initial.capacity());
+
+        for (int i = 0; i < 10_000; i++) {
+            buffer.writeByte(i);
+        }
+        assertEquals(16384, buffer.getBuffer().capacity());
+        assertEquals(10_000, buffer.getBuffer().position());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals((byte) i, buffer.getBuffer().get(i));
+        }
+        assertSame(initial, pool.acquire(), "the outgrown buffer was not returned to the pool");
+
+        pool.grow(buffer, MAX_SIZE + 1);
+        assertEquals(MAX_SIZE + 1, buffer.getBuffer().capacity());
+        assertEquals(10_000, buffer.getBuffer().position());
+        assertEquals((byte) 9_999, buffer.getBuffer().get(9_999));
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.einherji.rs2world.net.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ISAACCipherTests {
+
+    private static final int[] SEED = {0x12345678, 0x9abcdef0, 0x0fedcba9, 0x87654321};
+
+    /*
+     * Reference values of the keystream for SEED, recorded from the original one-value-at-a-time implementation.
+     * Index 256 is the first value of the second batch of results.
+     */
+    private static final int[] REFERENCE_INDICES = {0, 1, 2, 3, 254, 255, 256, 257, 511, 512, 999};
+    private static final int[] REFERENCE_VALUES = {
+            0xa3b47b4a, 0x8d1d60af, 0xebac5a61, 0xfe02bb08, 0xa8502011, 0xcabdeeb7,
+            0x387b8306, 0xafdcb4a9, 0x35806d81, 0xa31ff763, 0x592cc44f
+    };
+    private static final long REFERENCE_HASH = 6568444700077714833L;
+
+    @Test
+    void keystreamMatchesTheReferenceSequence() {
+        ISAACCipher cipher = new ISAACCipher(SEED);
+        int[] values = new int[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = cipher.getNextValue();
+        }
+        assertReference(values);
+    }
+
+    @Test
+    void bulkKeystreamMatchesSingleValues() {
+        ISAACCipher cipher = new ISAACCipher(SEED);
+        int[] values = new int[1000];
+        int offset = 0;
+        for (int length : new int[]{1, 7, 300, 255, 1, 436}) {
+            cipher.getNextValues(values, offset, length);
+            offset += length;
+        }
+        assertReference(values);
+
+        ISAACCipher single = new ISAACCipher(SEED);
+        ISAACCipher bulk = new ISAACCipher(SEED);
+        byte[] expected = new byte[600];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = (byte) single.getNextValue();
+        }
+        byte[] actual = new byte[600];
+        bulk.getNextValues(actual, 0, 100);
+        bulk.getNextValues(actual, 100, 500);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void encryptsOpcodesLikePerPacketHeaders() {
+        ISAACCipher perPacket = new ISAACCipher(SEED);
+        ISAACCipher deferred = new ISAACCipher(SEED);
+        Rs2WriteBuffer expected = Rs2Buffer.createWriteBuffer(ByteBuffer.allocate(4096));
+        Rs2WriteBuffer actual = Rs2Buffer.createWriteBuffer(ByteBuffer.allocate(4096));
+        for (int packet = 0; packet < 300; packet++) {
+            expected.writeVariableHeader(perPacket, packet & 0xff);
+            actual.writeVariableHeader(packet & 0xff);
+            for (int i = 0; i < packet % 5; i++) {
+                expected.writeByte(i);
+                actual.writeByte(i);
+            }
+            expected.finishVariableHeader();
+            actual.finishVariableHeader();
+        }
+        actual.encryptOpcodes(deferred);
+        assertEquals(expected.getBuffer().flip(), actual.getBuffer().flip());
+        assertEquals(perPacket.getNextValue(), deferred.getNextValue());
+    }
+
+    private static void assertReference(int[] values) {
+        for (int i = 0; i < REFERENCE_INDICES.length; i++) {
+            assertEquals(REFERENCE_VALUES[i], values[REFERENCE_INDICES[i]]);
+        }
+        long hash = 0;
+        for (int value : values) {
+            hash = hash * 31 + value;
+        }
+        assertEquals(REFERENCE_HASH, hash);
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.einherji.rs2world.persistence;
+
+import com.einherji.rs2world.player.Player;
+import com.einherji.rs2world.player.PlayerSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerSaveServiceTests {
+
+    @Test
+    void coalescesChangesIntoOneBatch() throws InterruptedException {
+        RecordingRepository repository = new RecordingRepository();
+        PlayerSaveService saveService = new PlayerSaveService(repository, 10);
+        Player player = repository.create("mopar", "hash");
+
+        player.setPosition(3200, 3200, 0);
+        saveService.collect(player);
+        player.setPosition(3201, 3202, 1);
+        saveService.collect(player);
+        assertFalse(player.isDirty());
+        assertEquals(1, saveService.getPendingCount());
+
+        saveService.flush();
+        assertTrue(repository.saved.await(5, TimeUnit.SECONDS));
+        assertEquals(1, repository.batches.size());
+        assertEquals(1, repository.batches.get(0).size());
+        Player stored = repository.load("MOPAR").orElseThrow();
+        assertEquals(3201, stored.getX());
+        assertEquals(3202, stored.getY());
+        assertEquals(1, stored.getZ());
+    }
+
+    @Test
+    void servesUnsavedStateBeforeItIsWritten() {
+        RecordingRepository repository = new RecordingRepository();
+        PlayerSaveService saveService = new PlayerSaveService(repository, 10);
+        Player player = repository.create("mopar", "hash");
+
+        player.setPosition(3300, 3300, 0);
+        saveService.collect(player);
+
+        assertEquals(Player.SPAWN_X, repository.load("mopar").orElseThrow().getX());
+        assertEquals(3300, saveService.load("mopar").orElseThrow().getX());
+    }
+
+    @Test
+    void skipsPlayersThatDidNotChange() {
+        RecordingRepository repository = new RecordingRepository();
+        PlayerSaveService saveService = new PlayerSaveService(repository, 10);
+
+        saveService.collect(repository.create("mopar", "hash"));
+
+        assertEquals(0, saveService.getPendingCount());
+        assertTrue(saveService.isDue(20));
+        assertFalse(saveService.isDue(21));
+    }
+
+    @Test
+    void rejectsSaveIntervalsBelowOneTick() {
+        assertThrows(IllegalArgumentException.class, () -> new PlayerSaveService(new InMemoryPlayerRepository(), 0));
+    }
+
+    private static final class RecordingRepository extends InMemoryPlayerRepository {
+
+        private final List<List<PlayerSnapshot>> batches = new ArrayList<>();
+        private final CountDownLatch saved = new CountDownLatch(1);
+
+        @Override
+        public void saveAll(Collection<PlayerSnapshot> snapshots) {
+            batches.add(new ArrayList<>(snapshots));
+            super.saveAll(snapshots);
+            saved.countDown();
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.einherji.rs2world.persistence;
+
+import com.einherji.rs2world.player.Player;
+import com.einherji.rs2world.player.PlayerSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotPlayerRepositoryTests {
+
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reloadsTheLatestRecordOfEveryPlayerAfterReopening() {
+        Path path = directory.resolve("players.dat");
+        try (SnapshotPlayerRepository repository = new SnapshotPlayerRepository(path)) {
+            Player mopar = repository.create("mopar", "hash");
+            repository.create("zezima", "hash");
+            repository.saveAll(List.of(moved(mopar, 3200)));
+            assertThrows(IllegalStateException.class, () -> repository.create("MOPAR", "hash"));
+        }
+        try (SnapshotPlayerRepository repository = new SnapshotPlayerRepository(path)) {
+            assertEquals(3200, repository.load("Mopar").orElseThrow().getX());
+            assertEquals(Player.SPAWN_X, repository.load("zezima").orElseThrow().getX());
+            assertFalse(repository.load("nobody").isPresent());
+            assertEquals(3, repository.create("newbie", "hash").getId());
+        }
+    }
+
+    @Test
+    void discardsATruncatedLastRecord() throws IOException {
+        Path path = directory.resolve("players.dat");
+        try (SnapshotPlayerRepository repository = new SnapshotPlayerRepository(path)) {
+            repository.create("mopar", "hash");
+        }
+        // a record header that announces more bytes than made it to disk before the crash
+        ByteBuffer segment = read(path);
+        int end = recordOffsets(segment).get(1);
+        segment.putInt(end, 40).putInt(end + 4, 0x12345678).put(end + RECORD_HEADER_SIZE, (byte) 1);
+        write(path, segment);
+
+        try (SnapshotPlayerRepository repository = new SnapshotPlayerRepository(path)) {
+            assertTrue(repository.load("mopar").isPresent());
+            repository.create("zezima", "hash");
+        }
+        try (SnapshotPlayerRepository repository = new SnapshotPlayerRepository(path)) {
+            assertTrue(repository.load("mopar").isPresent());
+            assertTrue(repository.load("zezima").isPresent());
+        }
+        assertEquals(3, recordOffsets(read(path)).size());
+    }
+
+    @Test
+    void discardsALastRecordThatFailsItsChecksum() throws IOException {
+        Path path = directory.resolve("players.dat");
+        try (SnapshotPlayerRepository repository = new SnapshotPlayerRepository(path)) {
+            Player mopar = repository.create("mopar", "hash");
+            repository.saveAll(List.of(moved(mopar, 3200)));
+            repository.saveAll(List.of(moved(mopar, 3300)));
+        }
+        ByteBuffer segment = read(path);
+        List<Integer> offsets = recordOffsets(segment);
+        int last = offsets.get(offsets.size() - 2);
+        int flipped = last + RECORD_HEADER_SIZE + segment.getInt(last) - 1;
+        segment.put(flipped, (byte) ~segment.get(flipped));
+        write(path, segment);
+
+        try (SnapshotPlayerRepository repository = new SnapshotPlayerRepository(path)) {
+            assertEquals(3200, repository.load("mopar").orElseThrow().getX());
+        }
+    }
+
+    @Test
+    void keepsTheLatestRecordsThroughCompaction() throws IOException {
+        Path path = directory.resolve("players.dat");
+        int players = 10;
+        int saves = 0;
+        try (SnapshotPlayerRepository repository = new SnapshotPlayerRepository(path)) {
+            List<Player> created = new ArrayList<>();
+            for (int i = 0; i < players; i++) {
+                created.add(repository.create("player" + i, "hash"));
+            }
+            // enough superseded records to pass the 1 MiB compaction threshold
+            for (int round = 0; round < 4000; round++) {
+                List<PlayerSnapshot> batch = new ArrayList<>();
+                for (Player player : created) {
+                    batch.add(moved(player, round));
+                }
+                repository.saveAll(batch);
+                saves += batch.size();
+            }
+            assertEquals(3999, repository.load("player3").orElseThrow().getX());
+        }
+        assertFalse(Files.exists(path.resolveSibling("players.dat.compact")));
+        int records = recordOffsets(read(path)).size() - 1;
+        assertTrue(records < saves / 2, records + " records survived " + saves + " saves");
+
+        try (SnapshotPlayerRepository repository = new SnapshotPlayerRepository(path)) {
+            for (int i = 0; i < players; i++) {
+                Player player = repository.load("player" + i).orElseThrow();
+                assertEquals(3999, player.getX());
+                assertEquals(i + 1, player.getId());
+            }
+            assertEquals(players + 1, repository.create("newbie", "hash").getId());
+        }
+    }
+
+    private static PlayerSnapshot moved(Player player, int x) {
+        return new PlayerSnapshot(player.getId(), player.getUsername(), player.getPasswordHash(), player.getRights(),
+                x, player.getY(), player.getZ());
+    }
+
+    /**
+     * @return the offsets of the records in the segment, followed by the offset just past the last one
+     */
+    private static List<Integer> recordOffsets(ByteBuffer segment) {
+        List<Integer> offsets = new ArrayList<>();
+        int position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= segment.capacity() && segment.getInt(position) > 0) {
+            offsets.add(position);
+            position += RECORD_HEADER_SIZE + segment.getInt(position);
+        }
+        offsets.add(position);
+        return offsets;
+    }
+
+    private static ByteBuffer read(Path path) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(path));
+    }
+
+    private static void write(Path path, ByteBuffer segment) throws IOException {
+        Files.write(path, segment.array());
+    }
+
+}
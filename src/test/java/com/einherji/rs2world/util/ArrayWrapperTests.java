@@ -0,0 +1,105 @@
+package com.einherji.rs2world.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArrayWrapperTests {
+
+    @Test
+    void handsOutSlotsInAscendingOrderUntilFull() {
+        ArrayWrapper<String> wrapper = ArrayWrapper.wrap(new String[3]);
+        assertEquals(0, wrapper.place("a"));
+        assertEquals(1, wrapper.place("b"));
+        assertEquals(2, wrapper.place("c"));
+        assertEquals(-1, wrapper.place("d"));
+        assertEquals(3, wrapper.size());
+        assertEquals("b", wrapper.get(1));
+    }
+
+    @Test
+    void reusesTheMostRecentlyVacatedSlotFirst() {
+        ArrayWrapper<String> wrapper = ArrayWrapper.wrap(new String[4]);
+        for (String e : List.of("a", "b", "c", "d")) {
+            wrapper.place(e);
+        }
+        assertEquals("b", wrapper.remove(1));
+        assertEquals("d", wrapper.remove(3));
+        assertEquals(2, wrapper.size());
+
+        assertEquals(3, wrapper.place("e"));
+        assertEquals(1, wrapper.place("f"));
+        assertEquals(-1, wrapper.place("g"));
+    }
+
+    @Test
+    void ignoresTheRemovalOfAnEmptySlot() {
+        ArrayWrapper<String> wrapper = ArrayWrapper.wrap(new String[2]);
+        wrapper.place("a");
+        assertNull(wrapper.remove(1));
+        assertEquals("a", wrapper.remove(0));
+        assertNull(wrapper.remove(0));
+        assertEquals(0, wrapper.size());
+
+        // removing twice must not hand the same slot out twice
+        assertEquals(0, wrapper.place("b"));
+        assertEquals(1, wrapper.place("c"));
+        assertEquals(-1, wrapper.place("d"));
+    }
+
+    @Test
+    void onlyFreesTheSlotsThatAreEmptyWhenWrapped() {
+        ArrayWrapper<String> wrapper = ArrayWrapper.wrap(new String[]{null, "a", null});
+        assertEquals(1, wrapper.size());
+        assertEquals(0, wrapper.place("b"));
+        assertEquals(2, wrapper.place("c"));
+        assertEquals(-1, wrapper.place("d"));
+    }
+
+    @Test
+    void neverHandsOutASlotTwiceAcrossThreads() throws InterruptedException {
+        int threads = 4;
+        int perThread = 1000;
+        ThreadSafeArrayWrapper<Integer> wrapper = ThreadSafeArrayWrapper.wrap(new Integer[threads * perThread]);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int first = t * perThread;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = first; i < first + perThread; i++) {
+                    int index = wrapper.place(i);
+                    // every other element leaves again, which keeps the free list busy
+                    if (i % 2 == 0) wrapper.remove(index);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * perThread / 2, wrapper.size());
+        boolean[] seen = new boolean[threads * perThread];
+        wrapper.forEach(e -> {
+            assertTrue(e % 2 == 1, "a removed element is still placed");
+            seen[e] = true;
+        });
+        for (int i = 1; i < seen.length; i += 2) {
+            assertTrue(seen[i], "element " + i + " was overwritten");
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.einherji.rs2world.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MpscArrayQueueTests {
+
+    private static final int PRODUCERS = 4;
+    private static final int ELEMENTS_PER_PRODUCER = 100_000;
+
+    @Test
+    void deliversEveryElementOfManyProducersExactlyOnce() throws InterruptedException {
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(256);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int first = p * ELEMENTS_PER_PRODUCER;
+            Thread producer = new Thread(() -> {
+                for (int i = first; i < first + ELEMENTS_PER_PRODUCER; i++) {
+                    while (!queue.offer(i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+
+        int[] seen = new int[PRODUCERS * ELEMENTS_PER_PRODUCER];
+        int[] lastOfProducer = new int[PRODUCERS];
+        Arrays.fill(lastOfProducer, -1);
+        int received = 0;
+        while (received < seen.length) {
+            received += queue.drain(e -> {
+                seen[e]++;
+                int producer = e / ELEMENTS_PER_PRODUCER;
+                assertTrue(e > lastOfProducer[producer], "element " + e + " arrived out of order");
+                lastOfProducer[producer] = e;
+            }, 64);
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        for (int i = 0; i < seen.length; i++) {
+            assertEquals(1, seen[i]);
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void rejectsOffersWhileFull() {
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(5);
+        assertEquals(8, queue.capacity());
+        for (int i = 0; i < 8; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(8));
+        assertEquals(8, queue.size());
+
+        assertEquals(0, (int) queue.poll());
+        assertTrue(queue.offer(8));
+        assertFalse(queue.offer(9));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, queue.drain(drained::add, 3));
+        assertEquals(List.of(1, 2, 3), drained);
+        assertEquals(5, queue.drain(drained::add, 100));
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8), drained);
+        assertEquals(0, queue.drain(drained::add, 100));
+        assertTrue(queue.isEmpty());
+    }
+
+}